@@ -1,6 +1,7 @@
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.Map;
 import java.util.Set;
 import java.util.HashSet;
@@ -38,6 +39,26 @@ class Literal {
     public String toString() {
         return (neg() ? "-" : "") + name();
     }
+
+    /**
+     * Canonical literal order: by name, positive before negative.
+     * Complementary literals end up next to each other.
+     */
+    public static final Comparator<Literal> ORDER =
+        Comparator.comparing(Literal::name).thenComparing(Literal::neg);
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) return true;
+        if (!(other instanceof Literal)) return false;
+        Literal l = (Literal)other;
+        return name().equals(l.name()) && neg() == l.neg();
+    }
+
+    @Override
+    public int hashCode() {
+        return 2 * name().hashCode() + (neg() ? 1 : 0);
+    }
 }
 
 class Clause extends ArrayList<Literal> {
@@ -86,6 +107,12 @@ class Cnf extends ArrayList<Clause> {
             vs.addAll(cls.vars());
         return vs;
     }
+    /**
+     * @return a normalized copy of this CNF (see CnfBuilder)
+     */
+    public Cnf normalize() {
+        return new CnfBuilder().addAll(this).build();
+    }
     public String toString() {
         return stream()
             .map( cls -> cls.toString() + "\n" )
@@ -93,3 +120,95 @@ class Cnf extends ArrayList<Clause> {
         ;
     }
 }
+
+/**
+ * Builds a normalized Cnf.
+ *
+ * Literals in every clause are sorted into canonical order
+ * (see Literal.ORDER) and repeated literals are dropped.
+ * Tautological clauses (containing both x and -x) are dropped
+ * and so are clauses that were already added (clauses are
+ * deduplicated by hashing their canonical form).
+ *
+ * The builder counts what it removed, see report().
+ */
+class CnfBuilder {
+    private final Cnf cnf = new Cnf();
+    private final Set<Clause> seen = new HashSet<Clause>();
+    private int added = 0;
+    private int duplicateLiterals = 0;
+    private int tautologies = 0;
+    private int duplicateClauses = 0;
+
+    /**
+     * Add a clause, unless it is a tautology or a duplicate.
+     * The clause itself is not modified.
+     */
+    public CnfBuilder add(Clause cls) {
+        ++added;
+        Clause canon = canonical(cls);
+        if (canon == null)
+            ++tautologies;
+        else if (!seen.add(canon))
+            ++duplicateClauses;
+        else {
+            // only count literals removed from clauses that are kept
+            duplicateLiterals += cls.size() - canon.size();
+            cnf.add(canon);
+        }
+        return this;
+    }
+
+    public CnfBuilder addAll(Collection<? extends Clause> cls) {
+        for (Clause c : cls)
+            add(c);
+        return this;
+    }
+
+    /**
+     * @return the sorted clause without repeated literals,
+     *         or null if the clause is a tautology
+     */
+    private Clause canonical(Clause cls) {
+        Literal[] lits = cls.toArray(new Literal[0]);
+        Arrays.sort(lits, Literal.ORDER);
+        Clause canon = new Clause();
+        Literal last = null;
+        for (Literal lit : lits) {
+            if (last != null && last.name().equals(lit.name())) {
+                if (last.neg() != lit.neg())
+                    return null;
+                continue;
+            }
+            canon.add(lit);
+            last = lit;
+        }
+        return canon;
+    }
+
+    /**
+     * @return the normalized CNF (the builder keeps a reference to it,
+     *         further add-s will modify it)
+     */
+    public Cnf build() {
+        return cnf;
+    }
+
+    public int added() { return added; }
+    public int kept() { return cnf.size(); }
+    public int duplicateLiterals() { return duplicateLiterals; }
+    public int tautologies() { return tautologies; }
+    public int duplicateClauses() { return duplicateClauses; }
+
+    /**
+     * @return a one line summary of what was removed
+     */
+    public String report() {
+        return "clauses: " + added
+            + " kept: " + kept()
+            + " tautologies: " + tautologies
+            + " duplicate clauses: " + duplicateClauses
+            + " duplicate literals: " + duplicateLiterals
+        ;
+    }
+}
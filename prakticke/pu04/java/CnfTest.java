@@ -187,6 +187,21 @@ class Tester {
 
     }
 
+    public void testBuilder(List<Clause> input, String expected,
+            int kept, int tautologies, int duplicateClauses, int duplicateLiterals) {
+        ncase += 1;
+        System.err.println("CASE " + ncase + ": CnfBuilder " + input);
+        CnfBuilder builder = new CnfBuilder().addAll(input);
+        Cnf cnf = builder.build();
+        compare(cnf.toString().trim().replace("\n", "; "), expected, "normalized CNF");
+        compare(builder.added(), input.size(), "added");
+        compare(builder.kept(), kept, "kept");
+        compare(builder.tautologies(), tautologies, "tautologies");
+        compare(builder.duplicateClauses(), duplicateClauses, "duplicate clauses");
+        compare(builder.duplicateLiterals(), duplicateLiterals, "duplicate literals");
+        System.err.println("  " + builder.report());
+    }
+
     public boolean status() {
         System.err.println("");
         System.err.println("TESTED " + tested);
@@ -219,6 +234,21 @@ public class CnfTest {
         Variable b = Var("b");
         Variable c = Var("c");
 
+        t.testBuilder(Arrays.asList(Cls(Lit("c"), Not("a"), Lit("b"), Lit("a"), Lit("d"))),
+            "", 0, 1, 0, 0);
+        t.testBuilder(Arrays.asList(Cls(Lit("c"), Not("b"), Lit("a"))),
+            "a -b c", 1, 0, 0, 0);
+        t.testBuilder(Arrays.asList(Cls(Lit("b"), Lit("a"), Lit("b"), Lit("a"), Lit("b"))),
+            "a b", 1, 0, 0, 3);
+        t.testBuilder(Arrays.asList(
+                Cls(Lit("a"), Not("b")),
+                Cls(Not("b"), Lit("a")),
+                Cls(Not("b"), Lit("a"), Not("b")),
+                Cls(Lit("b"), Lit("b"), Not("b")),
+                Cls(Lit("c"))
+            ),
+            "a -b; c", 2, 1, 2, 0);
+
         t.test(a);
 
         t.test(Not(a));
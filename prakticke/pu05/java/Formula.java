@@ -9,6 +9,10 @@ public interface Formula {
     public Formula[] subf();
     public String toString();
     public boolean equals(Formula other);
+    /**
+     * Structural hash (consistent with equals), cached in composite formulas.
+     */
+    public int hashCode();
     public Set<String> vars();
 
     public SignedFormula.Type signedType(boolean sign);
@@ -42,6 +46,16 @@ class Variable implements Formula {
         return name().equals(otherVar.name());
     }
 
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof Formula && equals((Formula) other);
+    }
+
+    @Override
+    public int hashCode() {
+        return name.hashCode();
+    }
+
     public Set<String> vars() {
         return new HashSet<String>(Arrays.asList(name()));
     }
@@ -65,6 +79,7 @@ class Variable implements Formula {
 class CompositeFormula implements Formula {
     Formula[] subs;
     String conn;
+    private int hash = 0; // 0 = not computed yet
     CompositeFormula(Formula[] subs, String conn) {
         this.subs = subs;
         this.conn = conn;
@@ -83,12 +98,34 @@ class CompositeFormula implements Formula {
     public boolean equals(Formula other) {
         if (this == other) return true;
         if (getClass() != other.getClass()) return false;
+        if (hashCode() != other.hashCode()) return false;
         if (subf().length != other.subf().length) return false;
         for (int i=0; i < subf().length; ++i)
             if (!subf()[i].equals(other.subf()[i])) return false;
         return true;
     }
 
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof Formula && equals((Formula) other);
+    }
+
+    /**
+     * The hash is computed from the hashes of the subformulas (which
+     * are cached too) the first time it is needed.
+     */
+    @Override
+    public int hashCode() {
+        int h = hash;
+        if (h == 0) {
+            h = 31 * conn.hashCode() + Arrays.hashCode(subs);
+            if (h == 0)
+                h = 1;
+            hash = h;
+        }
+        return h;
+    }
+
     public Set<String> vars() {
         Set<String> vs = new HashSet<String>();
         for (Formula f : subf()) {
@@ -60,7 +60,7 @@ class SignedFormula {
 
     @Override
     public int hashCode() {
-        return toString().hashCode();
+        return f.hashCode() * 2 + (sign ? 1 : 0);
     }
 
     public boolean equals(Object other)
@@ -80,7 +80,6 @@ class Node {
     private List<Node> children = new ArrayList<Node>();
     private Tableau tableau = null;
     private int number = 0;
-    static private int NUM = 0;
 
     /**
      * Creates a new tableau node.
@@ -89,11 +88,12 @@ class Node {
      * @param source reference to the node containing the original
      *               formula that this node was created from
      *               (null for "input" formulas at the top of the tableau)
+     *
+     * The node gets its number when it is added to a tableau.
      */
     public Node(SignedFormula sf, Node source) {
         this.sf = sf;
         this.source = source;
-        this.number = ++NUM;
     }
 
     public SignedFormula sf() { return sf; }
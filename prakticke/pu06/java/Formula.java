@@ -7,6 +7,10 @@ public interface Formula {
     public Formula[] subf();
     public String toString();
     public boolean equals(Formula other);
+    /**
+     * Structural hash (consistent with equals), cached in composite formulas.
+     */
+    public int hashCode();
     public Set<String> vars();
 
     public SignedFormula.Type signedType(boolean sign);
@@ -40,6 +44,16 @@ class Variable implements Formula {
         return name().equals(otherVar.name());
     }
 
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof Formula && equals((Formula) other);
+    }
+
+    @Override
+    public int hashCode() {
+        return name.hashCode();
+    }
+
     public Set<String> vars() {
         return new HashSet<String>(Arrays.asList(name()));
     }
@@ -63,6 +77,7 @@ class Variable implements Formula {
 class CompositeFormula implements Formula {
     Formula[] subs;
     String conn;
+    private int hash = 0; // 0 = not computed yet
     CompositeFormula(Formula[] subs, String conn) {
         this.subs = subs;
         this.conn = conn;
@@ -81,12 +96,34 @@ class CompositeFormula implements Formula {
     public boolean equals(Formula other) {
         if (this == other) return true;
         if (getClass() != other.getClass()) return false;
+        if (hashCode() != other.hashCode()) return false;
         if (subf().length != other.subf().length) return false;
         for (int i=0; i < subf().length; ++i)
             if (!subf()[i].equals(other.subf()[i])) return false;
         return true;
     }
 
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof Formula && equals((Formula) other);
+    }
+
+    /**
+     * The hash is computed from the hashes of the subformulas (which
+     * are cached too) the first time it is needed.
+     */
+    @Override
+    public int hashCode() {
+        int h = hash;
+        if (h == 0) {
+            h = 31 * conn.hashCode() + Arrays.hashCode(subs);
+            if (h == 0)
+                h = 1;
+            hash = h;
+        }
+        return h;
+    }
+
     public Set<String> vars() {
         Set<String> vs = new HashSet<String>();
         for (Formula f : subf()) {
@@ -116,18 +153,53 @@ class Negation extends CompositeFormula {
     public String toString() {
         return "-" + originalFormula().toString();
     }
+
+    @Override
+    public SignedFormula.Type signedType(boolean sign) {
+        return SignedFormula.Type.Alpha;
+    }
+    @Override
+    public SignedFormula[] signedSubf(boolean sign) {
+        return new SignedFormula[]{
+            new SignedFormula(!sign, originalFormula())
+        };
+    }
 }
 
 class Conjunction extends CompositeFormula {
     public Conjunction(Formula[] formulas) {
         super(formulas, "&");
     }
+
+    @Override
+    public SignedFormula.Type signedType(boolean sign) {
+        return sign ? SignedFormula.Type.Alpha : SignedFormula.Type.Beta;
+    }
+    @Override
+    public SignedFormula[] signedSubf(boolean sign) {
+        return Arrays.stream(subf())
+            .map(f -> new SignedFormula(sign, f))
+            .toArray(SignedFormula[]::new)
+        ;
+    }
 }
 
 class Disjunction extends CompositeFormula {
     public Disjunction(Formula[] formulas) {
         super(formulas, "|");
     }
+
+    @Override
+    public SignedFormula.Type signedType(boolean sign) {
+        return sign ? SignedFormula.Type.Beta : SignedFormula.Type.Alpha;
+    }
+    @Override
+    public SignedFormula[] signedSubf(boolean sign) {
+        return Arrays.stream(subf())
+            .map(f -> new SignedFormula(sign, f))
+            .toArray(SignedFormula[]::new)
+        ;
+    }
 }
 
 class BinaryFormula extends CompositeFormula {
@@ -146,10 +218,34 @@ class Implication extends BinaryFormula {
     public Implication(Formula a, Formula b) {
         super(a, b, "->");
     }
+
+    @Override
+    public SignedFormula.Type signedType(boolean sign) {
+        return sign ? SignedFormula.Type.Beta : SignedFormula.Type.Alpha;
+    }
+    @Override
+    public SignedFormula[] signedSubf(boolean sign) {
+        return new SignedFormula[]{
+            new SignedFormula(!sign, leftSide()),
+            new SignedFormula(sign, rightSide())
+        };
+    }
 }
 
 class Equivalence extends BinaryFormula {
     public Equivalence(Formula a, Formula b) {
         super(a, b, "<->");
     }
+
+    @Override
+    public SignedFormula.Type signedType(boolean sign) {
+        return sign ? SignedFormula.Type.Alpha : SignedFormula.Type.Beta;
+    }
+    @Override
+    public SignedFormula[] signedSubf(boolean sign) {
+        return new SignedFormula[]{
+            new SignedFormula(sign, new Implication(leftSide(), rightSide())),
+            new SignedFormula(sign, new Implication(rightSide(), leftSide()))
+        };
+    }
 }
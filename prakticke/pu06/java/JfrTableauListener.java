@@ -0,0 +1,205 @@
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import static java.util.stream.Collectors.joining;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A TableauListener that counts events and publishes them
+ * as Java Flight Recorder events.
+ *
+ * Every build is a `tableau.Build` event (with its input formulas
+ * and the final size), so a recording shows which inputs blow up.
+ * Beta expansions, closed and completed branches are separate events.
+ * Added nodes and alpha expansions are too frequent to record one
+ * by one, they are only counted.
+ *
+ * JFR events are only created, filled in and committed when their type
+ * is enabled in the running recording (e.g. `java -XX:StartFlightRecording
+ * ...`), otherwise only the counters are updated and nothing is allocated.
+ * The event types are looked up once; asking them is just a flag read.
+ */
+class JfrTableauListener implements TableauListener {
+    @Name("tableau.Build")
+    @Label("Tableau Build")
+    @Category("Tableau")
+    @Description("Building of one tableau")
+    static class BuildEvent extends Event {
+        @Label("Input") String input;
+        @Label("Nodes") int nodes;
+        @Label("Max Depth") int maxDepth;
+        @Label("Closed") boolean closed;
+        @Label("Alpha Expansions") long alphaExpansions;
+        @Label("Beta Expansions") long betaExpansions;
+        @Label("Beta Eliminations") long betaEliminations;
+    }
+
+    @Name("tableau.BetaExpansion")
+    @Label("Beta Expansion")
+    @Category("Tableau")
+    static class BetaExpansionEvent extends Event {
+        @Label("Formula") String formula;
+        @Label("Node") int node;
+        @Label("Depth") int depth;
+        @Label("Branches") int branches;
+    }
+
+    @Name("tableau.BranchClosed")
+    @Label("Branch Closed")
+    @Category("Tableau")
+    static class BranchClosedEvent extends Event {
+        @Label("Node") int node;
+        @Label("Closed From") int closedFrom;
+        @Label("Depth") int depth;
+    }
+
+    @Name("tableau.BranchCompleted")
+    @Label("Branch Completed")
+    @Category("Tableau")
+    static class BranchCompletedEvent extends Event {
+        @Label("Leaf") int leaf;
+        @Label("Depth") int depth;
+    }
+
+    // registering is slow, do it when the listener is created,
+    // not in the middle of the first build
+    private static final EventType buildType = register(BuildEvent.class);
+    private static final EventType betaExpansionType = register(BetaExpansionEvent.class);
+    private static final EventType branchClosedType = register(BranchClosedEvent.class);
+    private static final EventType branchCompletedType = register(BranchCompletedEvent.class);
+
+    private static EventType register(Class<? extends Event> eventClass) {
+        FlightRecorder.register(eventClass);
+        return EventType.getEventType(eventClass);
+    }
+
+    private final LongAdder builds = new LongAdder();
+    private final LongAdder nodes = new LongAdder();
+    private final LongAdder alphaExpansions = new LongAdder();
+    private final LongAdder betaExpansions = new LongAdder();
+    private final LongAdder betaEliminations = new LongAdder();
+    private final LongAdder closedBranches = new LongAdder();
+    private final LongAdder completedBranches = new LongAdder();
+
+    // the running build of each thread (builds are started and finished
+    // by the same thread, even with ParallelTableauBuilder)
+    private final ThreadLocal<BuildEvent> build = new ThreadLocal<BuildEvent>();
+
+    public long builds() { return builds.sum(); }
+    public long nodes() { return nodes.sum(); }
+    public long alphaExpansions() { return alphaExpansions.sum(); }
+    public long betaExpansions() { return betaExpansions.sum(); }
+    public long betaEliminations() { return betaEliminations.sum(); }
+    public long closedBranches() { return closedBranches.sum(); }
+    public long completedBranches() { return completedBranches.sum(); }
+
+    /**
+     * Reset all counters to 0.
+     */
+    public void reset() {
+        builds.reset();
+        nodes.reset();
+        alphaExpansions.reset();
+        betaExpansions.reset();
+        betaEliminations.reset();
+        closedBranches.reset();
+        completedBranches.reset();
+    }
+
+    @Override
+    public void buildStarted(SignedFormula[] sfs) {
+        builds.increment();
+        if (!buildType.isEnabled())
+            return;
+        BuildEvent event = new BuildEvent();
+        event.input = Arrays.stream(sfs).map(sf -> sf.toString()).collect(joining("; "));
+        event.begin();
+        build.set(event);
+    }
+
+    @Override
+    public void buildFinished(Tableau t) {
+        BuildEvent event = build.get();
+        if (event == null)
+            return;
+        build.remove();
+        event.end();
+        event.nodes = t.size();
+        event.maxDepth = t.maxDepth();
+        event.closed = t.isClosed();
+        event.alphaExpansions = t.alphaExtensions();
+        event.betaExpansions = t.betaExtensions();
+        event.betaEliminations = t.betaEliminations();
+        event.commit();
+    }
+
+    @Override
+    public void nodeAdded(Node node) {
+        nodes.increment();
+    }
+
+    @Override
+    public void alphaExpanded(Node from, Node added) {
+        alphaExpansions.increment();
+    }
+
+    @Override
+    public void betaEliminated(Node from, Node added) {
+        betaEliminations.increment();
+    }
+
+    @Override
+    public void betaExpanded(Node from, List<Node> added) {
+        betaExpansions.increment();
+        if (!betaExpansionType.isEnabled())
+            return;
+        BetaExpansionEvent event = new BetaExpansionEvent();
+        event.formula = from.sf().toString();
+        event.node = from.number();
+        event.depth = added.get(0).depth();
+        event.branches = added.size();
+        event.commit();
+    }
+
+    @Override
+    public void branchClosed(Node node, Node closedFrom) {
+        closedBranches.increment();
+        if (!branchClosedType.isEnabled())
+            return;
+        BranchClosedEvent event = new BranchClosedEvent();
+        event.node = node.number();
+        event.closedFrom = closedFrom.number();
+        event.depth = node.depth();
+        event.commit();
+    }
+
+    @Override
+    public void branchCompleted(Node leaf) {
+        completedBranches.increment();
+        if (!branchCompletedType.isEnabled())
+            return;
+        BranchCompletedEvent event = new BranchCompletedEvent();
+        event.leaf = leaf.number();
+        event.depth = leaf.depth();
+        event.commit();
+    }
+
+    @Override
+    public String toString() {
+        return "builds: " + builds()
+            + " nodes: " + nodes()
+            + " alpha: " + alphaExpansions()
+            + " beta: " + betaExpansions()
+            + " eliminations: " + betaEliminations()
+            + " closed: " + closedBranches()
+            + " completed: " + completedBranches()
+        ;
+    }
+}
@@ -0,0 +1,113 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Builds a complete KE tableau (analytic cut instead of the beta rule).
+ *
+ * Alpha formulas are expanded as in TableauBuilder. Beta formulas are
+ * not split into one branch per subformula:
+ *
+ *  - if the complements of all but one subformula of a beta formula
+ *    are on the branch, the remaining subformula is added to the branch
+ *    (beta elimination, e.g. T(a|b), F a gives T b); this does not branch
+ *    and is done with Tableau.extendEliminate;
+ *  - otherwise the tableau branches on a cut T X | F X (Tableau.extendCut),
+ *    where X is a subformula of the beta formula chosen by the strategy.
+ *    The beta formula is then fulfilled in the first branch and one step
+ *    closer to an elimination in the second one.
+ *
+ * The branches of a cut are mutually exclusive, so the same subtree
+ * is never built twice; on some families of formulas (e.g. all clauses
+ * over some variables) KE tableaux are exponentially smaller.
+ *
+ * The nodes added by both rules have the beta node as their source.
+ */
+class KeTableauBuilder extends TableauBuilder {
+    public KeTableauBuilder() {
+        super();
+    }
+
+    public KeTableauBuilder(SelectionStrategy strategy) {
+        super(strategy);
+    }
+
+    @Override
+    public String name() {
+        return "KE(" + super.name() + ")";
+    }
+
+    @Override
+    void expand(
+        Tableau t,
+        Node leaf,
+        Deque<Node> alphas,
+        List<Node> betas,
+        BranchIndex branch
+    ) {
+        for (;;) {
+            leaf = expandAlphas(t, leaf, alphas, betas, branch);
+            if (leaf == null)
+                return;
+            betas.removeIf(beta -> isFulfilled(beta.sf(), branch));
+            if (betas.isEmpty()) {
+                t.complete(leaf); // complete open branch
+                return;
+            }
+            Node eliminated = eliminate(t, leaf, betas, branch);
+            if (eliminated == null)
+                break;
+            leaf = eliminated;
+            if (processNode(leaf, alphas, betas, branch))
+                return;
+        }
+
+        Node beta = betas.get(strategy().selectBeta(betas, branch));
+        SignedFormula cut = null;
+        for (SignedFormula sf : beta.sf().subf()) {
+            if (branch.complementOf(sf) == null) {
+                cut = sf;
+                break;
+            }
+        }
+
+        int mark = branch.mark();
+        for (Node child : t.extendCut(leaf, beta, cut)) {
+            Deque<Node> childAlphas = new ArrayDeque<Node>(alphas);
+            List<Node> childBetas = new ArrayList<Node>(betas);
+            if (!processNode(child, childAlphas, childBetas, branch))
+                expand(t, child, childAlphas, childBetas, branch);
+            branch.undo(mark);
+        }
+    }
+
+    /**
+     * Applies beta elimination to the first beta node that allows it
+     * (at most one of its subformulas does not have its complement
+     * on the branch).
+     *
+     * @return the added node or null if no beta node can be eliminated
+     */
+    private Node eliminate(Tableau t, Node leaf, List<Node> betas, BranchIndex branch) {
+        for (int b = 0; b < betas.size(); ++b) {
+            Node beta = betas.get(b);
+            SignedFormula[] subs = beta.sf().subf();
+            int open = -1;
+            int nopen = 0;
+            for (int i = 0; i < subs.length && nopen < 2; ++i) {
+                if (branch.complementOf(subs[i]) == null) {
+                    open = i;
+                    ++nopen;
+                }
+            }
+            if (nopen < 2) {
+                // with no open subformula, any of them closes the branch
+                betas.remove(b);
+                branch.markExpanded(beta.sf());
+                return t.extendEliminate(leaf, beta, Math.max(open, 0));
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,164 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Builds a complete tableau like TableauBuilder, but expands
+ * the branches created by a beta rule in parallel.
+ *
+ * Every branch is expanded by a fork/join task with its own copy
+ * of the branch state (BranchIndex, alphas, betas). When the pool
+ * is already busy (enough queued tasks), branches are expanded
+ * sequentially in the current task, like in TableauBuilder.
+ *
+ * In the satisfiability mode (`stopAtOpenBranch`) all tasks stop
+ * as soon as a complete open branch is found; the resulting tableau
+ * is then not complete, but it is open.
+ */
+class ParallelTableauBuilder extends TableauBuilder {
+    // fork new tasks only while there are at most this many queued tasks
+    private static final int SURPLUS = 3;
+
+    private final ForkJoinPool pool;
+    private final boolean stopAtOpenBranch;
+
+    public ParallelTableauBuilder() {
+        this(new AlphaBeforeBeta(), ForkJoinPool.commonPool(), false);
+    }
+
+    public ParallelTableauBuilder(SelectionStrategy strategy) {
+        this(strategy, ForkJoinPool.commonPool(), false);
+    }
+
+    /**
+     * @param stopAtOpenBranch stop at the first complete open branch
+     */
+    public ParallelTableauBuilder(boolean stopAtOpenBranch) {
+        this(new AlphaBeforeBeta(), ForkJoinPool.commonPool(), stopAtOpenBranch);
+    }
+
+    /**
+     * @param strategy selects beta formulas (must be thread safe)
+     * @param pool the pool to run the expansion in
+     * @param stopAtOpenBranch stop at the first complete open branch
+     */
+    public ParallelTableauBuilder(
+        SelectionStrategy strategy,
+        ForkJoinPool pool,
+        boolean stopAtOpenBranch
+    ) {
+        super(strategy);
+        this.pool = pool;
+        this.stopAtOpenBranch = stopAtOpenBranch;
+    }
+
+    @Override
+    public String name() {
+        return "Parallel" + (stopAtOpenBranch ? "Sat" : "") + "(" + super.name() + ")";
+    }
+
+    @Override
+    void construct(Tableau t, SignedFormula[] sfs) {
+        BranchIndex branch = new BranchIndex();
+        Deque<Node> alphas = new ArrayDeque<Node>();
+        List<Node> betas = new ArrayList<Node>();
+
+        List<Node> initial = t.addInitial(sfs);
+        for (Node node : initial)
+            if (processNode(node, alphas, betas, branch))
+                return;
+
+        if (!initial.isEmpty())
+            pool.invoke(new Expand(t, initial.get(initial.size() - 1),
+                alphas, betas, branch, new AtomicBoolean(false)));
+    }
+
+    private class Expand extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Tableau t;
+        private final Node leaf;
+        private final Deque<Node> alphas;
+        private final List<Node> betas;
+        private final BranchIndex branch;
+        private final AtomicBoolean foundOpen;
+
+        Expand(
+            Tableau t,
+            Node leaf,
+            Deque<Node> alphas,
+            List<Node> betas,
+            BranchIndex branch,
+            AtomicBoolean foundOpen
+        ) {
+            this.t = t;
+            this.leaf = leaf;
+            this.alphas = alphas;
+            this.betas = betas;
+            this.branch = branch;
+            this.foundOpen = foundOpen;
+        }
+
+        @Override
+        protected void compute() {
+            expand(leaf, alphas, betas, branch);
+        }
+
+        private boolean cancelled() {
+            return stopAtOpenBranch && foundOpen.get();
+        }
+
+        private void expand(
+            Node leaf,
+            Deque<Node> alphas,
+            List<Node> betas,
+            BranchIndex branch
+        ) {
+            if (cancelled())
+                return;
+            leaf = expandAlphas(t, leaf, alphas, betas, branch);
+            if (leaf == null)
+                return;
+
+            Node beta = nextBeta(betas, branch);
+            if (beta == null) {
+                t.complete(leaf); // complete open branch
+                foundOpen.set(true);
+                return;
+            }
+            if (cancelled())
+                return;
+
+            List<Node> children = t.extendBeta(leaf, beta);
+
+            if (children.size() > 1 && getSurplusQueuedTaskCount() <= SURPLUS) {
+                List<Expand> tasks = new ArrayList<Expand>();
+                for (Node child : children) {
+                    BranchIndex childBranch = new BranchIndex(branch);
+                    Deque<Node> childAlphas = new ArrayDeque<Node>(alphas);
+                    List<Node> childBetas = new ArrayList<Node>(betas);
+                    if (!processNode(child, childAlphas, childBetas, childBranch))
+                        tasks.add(new Expand(t, child,
+                            childAlphas, childBetas, childBranch, foundOpen));
+                }
+                invokeAll(tasks);
+                return;
+            }
+
+            int mark = branch.mark();
+            for (Node child : children) {
+                if (cancelled())
+                    return;
+                Deque<Node> childAlphas = new ArrayDeque<Node>(alphas);
+                List<Node> childBetas = new ArrayList<Node>(betas);
+                if (!processNode(child, childAlphas, childBetas, branch))
+                    expand(child, childAlphas, childBetas, branch);
+                branch.undo(mark);
+            }
+        }
+    }
+}
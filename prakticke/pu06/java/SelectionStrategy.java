@@ -0,0 +1,157 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decides which beta formula TableauBuilder expands next on a branch.
+ *
+ * Alpha formulas are always expanded first (they never branch), so
+ * a strategy only has to pick among the not yet expanded beta nodes.
+ *
+ * selectBeta can be called from several threads at once
+ * (see ParallelTableauBuilder).
+ */
+interface SelectionStrategy {
+    /**
+     * Called once at the start of every build with the input formulas.
+     */
+    default void init(SignedFormula[] sfs) {}
+
+    /**
+     * @param betas not yet expanded beta nodes on the current branch
+     *              (in the order they were added to the branch)
+     * @param branch index of signed formulas on the current branch
+     * @return index (into betas) of the node to expand next
+     */
+    int selectBeta(List<Node> betas, BranchIndex branch);
+
+    /**
+     * @return a short name used in benchmark output
+     */
+    default String name() {
+        return getClass().getSimpleName();
+    }
+
+    /**
+     * @return new instances of all available strategies
+     */
+    static List<SelectionStrategy> all() {
+        return Arrays.asList(
+            new AlphaBeforeBeta(),
+            new FewestBranchesFirst(),
+            new PreferClosing(),
+            new VariableOccurrence()
+        );
+    }
+}
+
+/**
+ * The naive strategy: expand beta formulas in the order
+ * they were added to the branch.
+ */
+class AlphaBeforeBeta implements SelectionStrategy {
+    public int selectBeta(List<Node> betas, BranchIndex branch) {
+        return 0;
+    }
+}
+
+/**
+ * Expand the beta formula with the fewest subformulas
+ * (i.e. the one creating the fewest new branches) first.
+ */
+class FewestBranchesFirst implements SelectionStrategy {
+    public int selectBeta(List<Node> betas, BranchIndex branch) {
+        int best = 0;
+        int bestBranches = Integer.MAX_VALUE;
+        for (int i = 0; i < betas.size(); ++i) {
+            // a beta formula has as many signed subformulas as subformulas,
+            // which does not allocate the signed ones
+            int branches = betas.get(i).sf().f().subf().length;
+            if (branches < bestBranches) {
+                best = i;
+                bestBranches = branches;
+            }
+        }
+        return best;
+    }
+}
+
+/**
+ * Prefer beta formulas whose subformulas immediately close
+ * (are complementary to a formula on the branch), so that
+ * the expansion creates as few open branches as possible.
+ * Ties are broken by the number of subformulas.
+ */
+class PreferClosing implements SelectionStrategy {
+    public int selectBeta(List<Node> betas, BranchIndex branch) {
+        int best = 0;
+        int bestOpen = Integer.MAX_VALUE;
+        int bestBranches = Integer.MAX_VALUE;
+        for (int i = 0; i < betas.size(); ++i) {
+            SignedFormula[] subs = betas.get(i).sf().subf();
+            int open = 0;
+            for (SignedFormula sf : subs)
+                if (branch.complementOf(sf) == null)
+                    ++open;
+            if (open < bestOpen || open == bestOpen && subs.length < bestBranches) {
+                best = i;
+                bestOpen = open;
+                bestBranches = subs.length;
+                // nothing beats a binary beta that closes both branches
+                if (open == 0 && subs.length <= 2)
+                    break;
+            }
+        }
+        return best;
+    }
+}
+
+/**
+ * Prefer beta formulas over variables that occur often in the input:
+ * their subformulas are the most likely to be closed soon.
+ * The score of a beta formula is the sum of the occurrence counts
+ * of its variables divided by the number of its subformulas.
+ */
+class VariableOccurrence implements SelectionStrategy {
+    private final Map<String, Integer> occurrences = new HashMap<String, Integer>();
+    private final Map<Formula, Double> scores = new ConcurrentHashMap<Formula, Double>();
+
+    @Override
+    public void init(SignedFormula[] sfs) {
+        occurrences.clear();
+        scores.clear();
+        for (SignedFormula sf : sfs)
+            count(sf.f());
+    }
+
+    private void count(Formula f) {
+        if (f instanceof Variable)
+            occurrences.merge(((Variable) f).name(), 1, Integer::sum);
+        for (Formula sub : f.subf())
+            count(sub);
+    }
+
+    private double score(SignedFormula sf) {
+        return scores.computeIfAbsent(sf.f(), f -> {
+            double sum = 0;
+            for (String var : f.vars())
+                sum += occurrences.getOrDefault(var, 0);
+            return sum / Math.max(1, sf.subf().length);
+        });
+    }
+
+    public int selectBeta(List<Node> betas, BranchIndex branch) {
+        int best = 0;
+        double bestScore = -1;
+        for (int i = 0; i < betas.size(); ++i) {
+            double score = score(betas.get(i).sf());
+            if (score > bestScore) {
+                best = i;
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+}
@@ -1,10 +1,17 @@
-import java.lang.StringBuilder;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
-import static java.lang.Math.max;
-import static java.util.stream.Collectors.joining;
-import static java.util.stream.Collectors.toList;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 class SignedFormula {
     private Formula f;
@@ -59,7 +66,7 @@ class SignedFormula {
 
     @Override
     public int hashCode() {
-        return toString().hashCode();
+        return f.hashCode() * 2 + (sign ? 1 : 0);
     }
 
     public boolean equals(Object other)
@@ -76,10 +83,16 @@ class Node {
     private SignedFormula sf;
     private Node source ;
     private Node closedFrom = null;
+    private Node parent = null;
     private List<Node> children = new ArrayList<Node>();
+    // cached isClosed() and the number of children that are not closed
+    private boolean closed = false;
+    private int openChildren = 0;
+    // true if there is a closing node above this one
+    private boolean onClosedBranch = false;
     private Tableau tableau = null;
     private int number = 0;
-    static private int NUM = 0;
+    private int depth = 1;
 
     /**
      * Creates a new tableau node.
@@ -88,11 +101,12 @@ class Node {
      * @param source reference to the node containing the original
      *               formula that this node was created from
      *               (null for "input" formulas at the top of the tableau)
+     *
+     * The node gets its number when it is added to a tableau.
      */
     public Node(SignedFormula sf, Node source) {
         this.sf = sf;
         this.source = source;
-        this.number = ++NUM;
     }
 
     public SignedFormula sf() { return sf; }
@@ -100,7 +114,10 @@ class Node {
     public List<Node> children() { return Collections.unmodifiableList(children); }
     public Node source() { return source; }
     public Node closedFrom() { return closedFrom; }
+    public Node parent() { return parent; }
     public int number() { return number; }
+    /** the number of nodes on the path from the root to this node */
+    public int depth() { return depth; }
 
     /**
      * Closes this node (and this branch) because the formula
@@ -109,29 +126,74 @@ class Node {
      * @param closedFrom a node on this branch with the complementary formula
      */
     public void close(Node closedFrom) {
-        this.closedFrom = closedFrom;
+        // closing propagates to the ancestors, which can be shared
+        // with branches built concurrently (see ParallelTableauBuilder)
+        synchronized (tableau != null ? tableau : this) {
+            boolean wasOnClosed = isOnClosedBranch();
+            this.closedFrom = closedFrom;
+            updateClosed();
+            if (!wasOnClosed) {
+                for (Node child : children)
+                    child.markClosedBranch();
+                if (tableau != null)
+                    tableau.dropOpenLeaves(this);
+            }
+        }
+        if (tableau != null)
+            tableau.listener().branchClosed(this, closedFrom);
     }
 
     /**
      * @return true if this node is closed
+     *         (it closes the branch or it has children and all are closed)
      */
     public boolean isClosed() {
-        if (closedFrom != null)
-            return true;
+        return closed;
+    }
+
+    /**
+     * @return true if this node or a node above it closes the branch
+     */
+    public boolean isOnClosedBranch() {
+        return onClosedBranch || closedFrom != null;
+    }
 
+    private void markClosedBranch() {
+        if (onClosedBranch)
+            return;
+        onClosedBranch = true;
         for (Node child : children)
-            if (!child.isClosed())
-                return false;
-        return children.size() > 0;
+            child.markClosedBranch();
+    }
+
+    /**
+     * Recompute the cached closed status and propagate
+     * a change up to the ancestors.
+     */
+    private void updateClosed() {
+        for (Node n = this; n != null; n = n.parent) {
+            boolean c = n.closedFrom != null || (!n.children.isEmpty() && n.openChildren == 0);
+            if (c == n.closed)
+                return;
+            n.closed = c;
+            if (n.parent != null)
+                n.parent.openChildren += c ? -1 : 1;
+        }
     }
 
     /**
      * Removes the node and its children from the tableau it belongs to.
      */
     public void disown() {
-        for (Node child : children)
-            child.disown();
-        tableau = null;
+        // the open leaves are shared with branches built concurrently,
+        // so take the same lock as close() and Tableau
+        synchronized (tableau != null ? tableau : this) {
+            for (Node child : children)
+                child.disown();
+            if (tableau != null && children.isEmpty())
+                tableau.dropOpenLeaves(this);
+            tableau = null;
+        }
     }
 
     /**
@@ -140,6 +202,13 @@ class Node {
      */
     public void addChild(Node child) {
         children.add(child);
+        child.parent = this;
+        child.depth = depth + 1;
+        if (isOnClosedBranch())
+            child.markClosedBranch();
+        if (!child.closed)
+            ++openChildren;
+        updateClosed();
     }
 
     /**
@@ -172,98 +241,174 @@ class Node {
             return "";
     }
 
+    /**
+     * @return the subtree of this node as a plain text tree
+     */
     public String tree() {
-        return String.join("\n", treeLines());
+        StringWriter w = new StringWriter();
+        try {
+            TableauRenderer.writeText(this, w);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return w.toString();
     }
+}
 
-    private final String separator = " | ";
+/**
+ * Index of the signed formulas on the current branch of a tableau.
+ *
+ * Used while building a tableau depth first: finding the node
+ * complementary to a new node (to close the branch) is a single
+ * hash lookup instead of a walk back to the root.
+ * The index also remembers which formulas were already expanded
+ * on the branch, so that no formula is expanded twice.
+ * Additions are recorded on a trail, so that the index can be
+ * restored when backtracking to another branch (see mark / undo).
+ */
+class BranchIndex {
+    private final Map<SignedFormula, Node> nodes = new HashMap<SignedFormula, Node>();
+    private final Set<SignedFormula> expanded = new HashSet<SignedFormula>();
+    private final List<SignedFormula> trail = new ArrayList<SignedFormula>();
+    // positions on the trail recorded by markExpanded (not by add)
+    private final BitSet expansions = new BitSet();
 
-    private int treeWidth() {
-        int thisWd = label().length();
-        int childrenWd = 0;
-        for (Node child : children)
-            childrenWd += child.treeWidth();
-        childrenWd += separator.length() * max(0, children.size() - 1);
-        return max(thisWd, childrenWd);
+    public BranchIndex() {
     }
 
-    private String repeat(String s, int n) {
-        StringBuilder sb = new StringBuilder(n);
-        for (int i = 0; i < n; ++i)
-            sb.append(s);
-        return sb.toString();
+    /**
+     * Creates an independent copy of `other`.
+     */
+    public BranchIndex(BranchIndex other) {
+        nodes.putAll(other.nodes);
+        expanded.addAll(other.expanded);
+        trail.addAll(other.trail);
+        expansions.or(other.expansions);
     }
-    private String center(String s, int n) {
-        int ss = s.length();
-        if (n <= ss) return s;
-        int left = (n - ss) / 2;
-        int right = n - ss - left;
-        return repeat(" ", left) + s + repeat(" ", right);
+
+    /**
+     * @return the node on the branch with the formula complementary
+     *         to `sf` or null if there is none
+     */
+    public Node complementOf(SignedFormula sf) {
+        return nodes.get(sf.neg());
     }
 
-    private List<String> treeLines() {
-        int width = treeWidth();
-        List<String> lines = new ArrayList();
+    /**
+     * @return true if `sf` is on the branch
+     */
+    public boolean contains(SignedFormula sf) {
+        return nodes.containsKey(sf);
+    }
 
-        lines.add(label());
+    /**
+     * @return the (first) node on the branch with `sf` or null
+     */
+    public Node get(SignedFormula sf) {
+        return nodes.get(sf);
+    }
 
-        if (closedFrom != null)
-            lines.add("* [" + number + "," + closedFrom.number + "]");
+    /**
+     * Add a node to the branch.
+     * If its formula is already on the branch, the original node is kept.
+     *
+     * @return false if the formula was already on the branch
+     */
+    public boolean add(Node node) {
+        if (nodes.putIfAbsent(node.sf(), node) != null)
+            return false;
+        trail.add(node.sf());
+        return true;
+    }
 
-        if (children.size() > 0) {
-            if (source == null && children.get(0).source != null) {
-                // last "input" node
-                lines.add(repeat("=", width));
-            }
-            else if (children.size() > 1) {
-                lines.add(repeat("-", width));
-            }
-            lines.addAll(treeMergeChildLines());
-        }
+    /**
+     * @return true if `sf` was already expanded on the branch
+     */
+    public boolean isExpanded(SignedFormula sf) {
+        return expanded.contains(sf);
+    }
+
+    /**
+     * Record that `sf` is expanded on the branch.
+     *
+     * @return false if it was expanded already
+     */
+    public boolean markExpanded(SignedFormula sf) {
+        if (!expanded.add(sf))
+            return false;
+        expansions.set(trail.size());
+        trail.add(sf);
+        return true;
+    }
+
+    /**
+     * @return the number of distinct signed formulas on the branch
+     */
+    public int size() {
+        return nodes.size();
+    }
 
-        return lines
-            .stream()
-            .map(l -> center(l, width))
-            .collect(toList())
-        ;
-    }
-
-    private List<String> treeMergeChildLines() {
-        List<List<String>> chLines =
-            children.stream().map(c -> c.treeLines()).collect(toList());
-        List<Integer> chWidths =
-            children.stream().map(c -> c.treeWidth()).collect(toList());
-
-        List<String> lines = new ArrayList<String>();
-        int l = 0;
-        boolean allEmpty = false;
-
-        for (; !allEmpty; ++l) {
-            allEmpty = true;
-            List<String> lineParts = new ArrayList<String>();
-            for (int i = 0; i < children.size(); ++i) {
-                if (l < chLines.get(i).size()) {
-                    // use i-th child line
-                    lineParts.add(chLines.get(i).get(l));
-                    allEmpty = false;
-                } else {
-                    // no more lines in i-th child, pad with spaces
-                    lineParts.add(repeat(" ", chWidths.get(i)));
-                }
+    /**
+     * @return a mark to return to with undo
+     */
+    public int mark() {
+        return trail.size();
+    }
+
+    /**
+     * Remove all nodes added (and expansions recorded)
+     * since `mark` was taken.
+     */
+    public void undo(int mark) {
+        for (int i = trail.size() - 1; i >= mark; --i) {
+            SignedFormula sf = trail.remove(i);
+            if (expansions.get(i)) {
+                expansions.clear(i);
+                expanded.remove(sf);
+            } else {
+                nodes.remove(sf);
             }
-            if (!allEmpty)
-                lines.add(lineParts.stream().collect(joining(separator)));
         }
-        return lines;
     }
 }
 
 /**
  * A (propositional) tableau that consists of Node-s.
+ *
+ * Nodes are numbered by the tableau they belong to (lock-free),
+ * so independent tableaux can be built concurrently.
+ * Different leaves of one tableau can be extended concurrently too
+ * (the bookkeeping shared by all nodes is synchronized on the tableau),
+ * but a single leaf must be extended by one thread only.
  */
 class Tableau {
     private Node root = null;
-    private int number = 0;
+    private final AtomicInteger number = new AtomicInteger();
+    private final Set<Node> openLeaves = new LinkedHashSet<Node>();
+    private final AtomicLong alphaExtensions = new AtomicLong();
+    private final AtomicLong betaExtensions = new AtomicLong();
+    private final AtomicLong betaEliminations = new AtomicLong();
+    private int maxDepth = 0;
+    private Node completeLeaf = null;
+    private final TableauListener listener;
+
+    public Tableau() {
+        this(TableauListener.NONE);
+    }
+
+    /**
+     * @param listener receives the events of this tableau (see TableauListener)
+     */
+    public Tableau(TableauListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * @return the listener of this tableau (TableauListener.NONE if none)
+     */
+    public TableauListener listener() {
+        return listener;
+    }
 
     /**
      * @return true if the tableau is closed (i.e. all branches are closed).
@@ -283,7 +428,69 @@ class Tableau {
      * @return the size of the tableau (number of nodes)
      */
     public int size() {
-        return number;
+        return number.get();
+    }
+
+    /**
+     * @return the number of open branches
+     */
+    public synchronized int openBranches() {
+        return openLeaves.size();
+    }
+
+    /**
+     * @return the leaves of open branches (in the order they were added)
+     */
+    public synchronized List<Node> openLeaves() {
+        return new ArrayList<Node>(openLeaves);
+    }
+
+    /**
+     * @return the length of the longest branch
+     */
+    public synchronized int maxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * @return the number of extendAlpha calls (nodes added by the alpha rule)
+     */
+    public long alphaExtensions() {
+        return alphaExtensions.get();
+    }
+
+    /**
+     * @return the number of branchings (extendBeta and extendCut calls)
+     */
+    public long betaExtensions() {
+        return betaExtensions.get();
+    }
+
+    /**
+     * @return the number of extendEliminate calls (KE beta eliminations)
+     */
+    public long betaEliminations() {
+        return betaEliminations.get();
+    }
+
+    /**
+     * Record that the branch ending at `leaf` is open and complete.
+     * Used by builders; only the first such branch is kept.
+     */
+    public void complete(Node leaf) {
+        synchronized (this) {
+            if (completeLeaf == null)
+                completeLeaf = leaf;
+        }
+        listener.branchCompleted(leaf);
+    }
+
+    /**
+     * @return the leaf of the first open branch recorded as complete
+     *         by the builder (null if there is none)
+     */
+    public synchronized Node completeLeaf() {
+        return completeLeaf;
     }
 
     /**
@@ -305,8 +512,24 @@ class Tableau {
      *             as input
      * @return A list of nodes that were created.
      */
-    public List<Node>  addInitial(SignedFormula[] sfs) {
-        throw new RuntimeException("Not implemented");
+    public synchronized List<Node>  addInitial(SignedFormula[] sfs) {
+        List<Node> added = new ArrayList<Node>();
+        Node last = null;
+        for (SignedFormula sf : sfs) {
+            Node node = new Node(sf, null);
+            if (last == null) {
+                root = node;
+                node.addToTableau(this, nextNumber());
+                openLeaves.add(node);
+                maxDepth = 1;
+                listener.nodeAdded(node);
+            } else {
+                attach(last, node);
+            }
+            added.add(node);
+            last = node;
+        }
+        return added;
     }
 
     /**
@@ -324,7 +547,32 @@ class Tableau {
      */
     public Node extendAlpha(Node leaf, Node from, int index)
     {
-        throw new RuntimeException("Not implemented");
+        Node node = new Node(from.sf().subf()[index], from);
+        attach(leaf, node);
+        alphaExtensions.incrementAndGet();
+        listener.alphaExpanded(from, node);
+        return node;
+    }
+
+    /**
+     * Extend the tableau at `leaf` by the beta elimination of `from`:
+     * the `index`-th subformula of the beta formula is added without
+     * branching (the complements of the others are on the branch,
+     * see KeTableauBuilder).
+     *
+     * @param leaf the (leaf) node to add the new node/formula to
+     * @param from the node with a beta formula
+     * @param index which beta-subformula to append
+     *
+     * @return reference to the added node.
+     */
+    public Node extendEliminate(Node leaf, Node from, int index)
+    {
+        Node node = new Node(from.sf().subf()[index], from);
+        attach(leaf, node);
+        betaEliminations.incrementAndGet();
+        listener.betaEliminated(from, node);
+        return node;
     }
 
     /**
@@ -338,6 +586,74 @@ class Tableau {
      */
     public List<Node> extendBeta(Node leaf, Node from)
     {
-        throw new RuntimeException("Not implemented");
+        List<Node> added = new ArrayList<Node>();
+        for (SignedFormula sf : from.sf().subf()) {
+            Node node = new Node(sf, from);
+            attach(leaf, node);
+            added.add(node);
+        }
+        betaExtensions.incrementAndGet();
+        listener.betaExpanded(from, added);
+        return added;
+    }
+
+    /**
+     * Extend the tableau at `leaf` by a cut on `sf`: two new children,
+     * with `sf` and with its complement (the branching rule of
+     * KE tableaux, see KeTableauBuilder).
+     *
+     * @param leaf the (leaf) node to add the new nodes/formulas to
+     * @param from the node with a beta formula `sf` is a subformula of
+     *             (it is the source of both new nodes)
+     * @param sf the signed formula to cut on
+     * @return list of references to the added nodes (`sf` first)
+     */
+    public List<Node> extendCut(Node leaf, Node from, SignedFormula sf)
+    {
+        List<Node> added = new ArrayList<Node>();
+        for (SignedFormula cut : new SignedFormula[]{ sf, sf.neg() }) {
+            Node node = new Node(cut, from);
+            attach(leaf, node);
+            added.add(node);
+        }
+        betaExtensions.incrementAndGet();
+        listener.betaExpanded(from, added);
+        return added;
+    }
+
+    /**
+     * @return the next free node number in this tableau
+     */
+    private int nextNumber() {
+        return number.incrementAndGet();
+    }
+
+    /**
+     * Add a new node as a child of `leaf` and update the open leaves.
+     */
+    private void attach(Node leaf, Node node) {
+        node.addToTableau(this, nextNumber());
+        synchronized (this) {
+            leaf.addChild(node);
+            maxDepth = Math.max(maxDepth, node.depth());
+            openLeaves.remove(leaf);
+            if (!node.isOnClosedBranch())
+                openLeaves.add(node);
+        }
+        listener.nodeAdded(node);
+    }
+
+    /**
+     * The leaves below `node` are not open leaves of this tableau anymore
+     * (the branch was closed or the nodes were disowned).
+     * Used by Node.
+     */
+    void dropOpenLeaves(Node node) {
+        if (node.children().isEmpty()) {
+            openLeaves.remove(node);
+            return;
+        }
+        for (Node child : node.children())
+            dropOpenLeaves(child);
     }
 }
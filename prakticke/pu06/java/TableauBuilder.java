@@ -1,8 +1,201 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Builds a complete tableau for a set of signed formulas.
+ *
+ * The tableau is built depth first. Every branch keeps its own
+ * `alphas` and `betas` (nodes that are not expanded yet on this branch).
+ * Signed formulas on the current branch are kept in a single BranchIndex
+ * (to detect closing), which is rolled back when backtracking.
+ * All alpha formulas are expanded first, the beta formula to expand
+ * is chosen by a SelectionStrategy.
+ *
+ * The tableau is regular: a signed formula is never added to a branch
+ * that already contains it, and beta formulas with a subformula already
+ * on the branch are not expanded (the branch would only be repeated).
+ */
 class TableauBuilder {
-    public Tableau build(SignedFormula[] sfs) {
-        Tableau t = new Tableau();
-        // TODO implement
+    private final SelectionStrategy strategy;
+    private TableauListener listener = TableauListener.NONE;
 
+    public TableauBuilder() {
+        this(new AlphaBeforeBeta());
+    }
+
+    public TableauBuilder(SelectionStrategy strategy) {
+        this.strategy = strategy;
+    }
+
+    public SelectionStrategy strategy() {
+        return strategy;
+    }
+
+    public TableauListener listener() {
+        return listener;
+    }
+
+    /**
+     * Set the listener that receives the events of all following builds
+     * (null for none).
+     */
+    public void setListener(TableauListener listener) {
+        this.listener = listener != null ? listener : TableauListener.NONE;
+    }
+
+    /**
+     * @return a short description used in benchmark output
+     */
+    public String name() {
+        return strategy.name();
+    }
+
+    /**
+     * Builds the tableau and summarizes it
+     * (see TableauResult, nothing is traversed again).
+     */
+    public TableauResult solve(SignedFormula[] sfs) {
+        return new TableauResult(build(sfs), sfs);
+    }
+
+    public Tableau build(SignedFormula[] sfs) {
+        listener.buildStarted(sfs);
+        Tableau t = new Tableau(listener);
+        strategy.init(sfs);
+        construct(t, sfs);
+        listener.buildFinished(t);
         return t;
     }
+
+    /**
+     * Builds the tableau for `sfs` in the empty tableau `t`.
+     */
+    void construct(Tableau t, SignedFormula[] sfs) {
+
+        BranchIndex branch = new BranchIndex();
+        Deque<Node> alphas = new ArrayDeque<Node>();
+        List<Node> betas = new ArrayList<Node>();
+
+        List<Node> initial = t.addInitial(sfs);
+        for (Node node : initial)
+            if (processNode(node, alphas, betas, branch))
+                return;
+
+        if (!initial.isEmpty())
+            expand(t, initial.get(initial.size() - 1), alphas, betas, branch);
+    }
+
+    /**
+     * Closes the node if it is complementary to a node on the branch,
+     * otherwise adds it to the branch and schedules it for expansion
+     * (unless its formula is already on the branch).
+     *
+     * @return true if the node closed the branch
+     */
+    boolean processNode(
+        Node node,
+        Deque<Node> alphas,
+        List<Node> betas,
+        BranchIndex branch
+    ) {
+        SignedFormula sf = node.sf();
+        Node complementary = branch.complementOf(sf);
+        if (complementary != null) {
+            node.close(complementary);
+            return true;
+        }
+        if (!branch.add(node))
+            return false;
+        if (sf.subf().length > 0) {
+            if (sf.type() == SignedFormula.Type.Alpha)
+                alphas.add(node);
+            else
+                betas.add(node);
+        }
+        return false;
+    }
+
+    /**
+     * Expands all scheduled alpha nodes on the branch ending at `leaf`.
+     * Subformulas already on the branch are skipped.
+     *
+     * @return the new leaf of the branch or null if the branch closed
+     */
+    Node expandAlphas(
+        Tableau t,
+        Node leaf,
+        Deque<Node> alphas,
+        List<Node> betas,
+        BranchIndex branch
+    ) {
+        while (!alphas.isEmpty()) {
+            Node alpha = alphas.poll();
+            if (!branch.markExpanded(alpha.sf()))
+                continue;
+            SignedFormula[] subs = alpha.sf().subf();
+            for (int i = 0; i < subs.length; ++i) {
+                if (branch.contains(subs[i]))
+                    continue;
+                leaf = t.extendAlpha(leaf, alpha, i);
+                if (processNode(leaf, alphas, betas, branch))
+                    return null;
+            }
+        }
+        return leaf;
+    }
+
+    /**
+     * Removes the next beta node to expand from `betas` (chosen
+     * by the strategy) and marks it expanded on the branch.
+     * Beta nodes that are expanded already or that have a subformula
+     * on the branch are dropped.
+     *
+     * @return the beta node or null if the branch is complete
+     */
+    Node nextBeta(List<Node> betas, BranchIndex branch) {
+        betas.removeIf(beta -> isFulfilled(beta.sf(), branch));
+        if (betas.isEmpty())
+            return null;
+        Node beta = betas.remove(strategy.selectBeta(betas, branch));
+        branch.markExpanded(beta.sf());
+        return beta;
+    }
+
+    static boolean isFulfilled(SignedFormula beta, BranchIndex branch) {
+        if (branch.isExpanded(beta))
+            return true;
+        for (SignedFormula sf : beta.subf())
+            if (branch.contains(sf))
+                return true;
+        return false;
+    }
+
+    void expand(
+        Tableau t,
+        Node leaf,
+        Deque<Node> alphas,
+        List<Node> betas,
+        BranchIndex branch
+    ) {
+        leaf = expandAlphas(t, leaf, alphas, betas, branch);
+        if (leaf == null)
+            return;
+
+        Node beta = nextBeta(betas, branch);
+        if (beta == null) {
+            t.complete(leaf); // complete open branch
+            return;
+        }
+
+        int mark = branch.mark();
+        for (Node child : t.extendBeta(leaf, beta)) {
+            Deque<Node> childAlphas = new ArrayDeque<Node>(alphas);
+            List<Node> childBetas = new ArrayList<Node>(betas);
+            if (!processNode(child, childAlphas, childBetas, branch))
+                expand(t, child, childAlphas, childBetas, branch);
+            branch.undo(mark);
+        }
+    }
 }
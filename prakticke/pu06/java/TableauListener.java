@@ -0,0 +1,40 @@
+import java.util.List;
+
+/**
+ * Receives events while a tableau is built
+ * (see TableauBuilder.setListener).
+ *
+ * The events are sent by the Tableau itself, so they are the same
+ * for all builders. With ParallelTableauBuilder they are sent from
+ * several threads at once.
+ *
+ * All methods do nothing by default; NONE is used when no listener
+ * is set, so there is (almost) no cost for not listening.
+ */
+interface TableauListener {
+    TableauListener NONE = new TableauListener() {};
+
+    /** a builder starts building a tableau for `sfs` */
+    default void buildStarted(SignedFormula[] sfs) {}
+
+    /** a builder finished the tableau `t` */
+    default void buildFinished(Tableau t) {}
+
+    /** `node` was added to the tableau (by any rule or as an input) */
+    default void nodeAdded(Node node) {}
+
+    /** `added` was added by the alpha rule for `from` */
+    default void alphaExpanded(Node from, Node added) {}
+
+    /** `added` was added by the beta elimination of `from` (KE tableaux) */
+    default void betaEliminated(Node from, Node added) {}
+
+    /** the branch was split to `added` by the beta rule (or a cut) for `from` */
+    default void betaExpanded(Node from, List<Node> added) {}
+
+    /** the branch ending at `node` was closed by `closedFrom` */
+    default void branchClosed(Node node, Node closedFrom) {}
+
+    /** the branch ending at `leaf` is open and complete */
+    default void branchCompleted(Node leaf) {}
+}
@@ -0,0 +1,486 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary format of tableaux (proof certificates).
+ *
+ * A proof is the magic "TBP1" followed by records:
+ *
+ *   'F' kind [name | n f_1 ... f_n]   defines the next formula
+ *   'N' sf source closedFrom children  a node (in preorder)
+ *   'E'                                the end of the proof
+ *
+ * Numbers are unsigned varints (7 bits per byte, low bits first).
+ * A formula is defined once, before the first record that uses it;
+ * composite formulas refer to the indices of their (earlier defined)
+ * subformulas. A node stores its signed formula as
+ * formula index * 2 + (1 if T), the preorder indices + 1 of its source
+ * and of its closing pair (0 for none) and the number of its children.
+ *
+ * See TableauProofWriter, TableauProofReader and TableauProofChecker.
+ */
+final class TableauProof {
+    static final byte[] MAGIC = { 'T', 'B', 'P', '1' };
+
+    static final int FORMULA = 'F';
+    static final int NODE = 'N';
+    static final int END = 'E';
+
+    static final int VARIABLE = 0;
+    static final int NEGATION = 1;
+    static final int CONJUNCTION = 2;
+    static final int DISJUNCTION = 3;
+    static final int IMPLICATION = 4;
+    static final int EQUIVALENCE = 5;
+
+    private TableauProof() {
+    }
+
+    static void writeVarint(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7f) != 0) {
+            out.writeByte((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    static int readVarint(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        throw new IOException("Bad proof: varint too long");
+    }
+}
+
+/**
+ * Writes tableaux in the TableauProof format.
+ *
+ * Nodes are written in preorder without recursion; equal formulas
+ * (also equal subformulas of different formulas) are written once.
+ */
+class TableauProofWriter {
+    private final DataOutputStream out;
+    private final Map<Formula, Integer> formulas = new HashMap<Formula, Integer>();
+
+    public TableauProofWriter(OutputStream out) {
+        this.out = new DataOutputStream(out);
+    }
+
+    /**
+     * Write the proof of `t` and flush the stream.
+     */
+    public void write(Tableau t) throws IOException {
+        formulas.clear();
+        out.write(TableauProof.MAGIC);
+
+        Map<Node, Integer> index = new IdentityHashMap<Node, Integer>();
+        Deque<Node> stack = new ArrayDeque<Node>();
+        if (t.root() != null)
+            stack.push(t.root());
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            int sf = formula(node.sf().f()) * 2 + (node.sf().sign() ? 1 : 0);
+            out.writeByte(TableauProof.NODE);
+            TableauProof.writeVarint(out, sf);
+            TableauProof.writeVarint(out, reference(index, node.source()));
+            TableauProof.writeVarint(out, reference(index, node.closedFrom()));
+            TableauProof.writeVarint(out, node.children().size());
+            index.put(node, index.size());
+
+            List<Node> children = node.children();
+            for (int i = children.size() - 1; i >= 0; --i)
+                stack.push(children.get(i));
+        }
+        out.writeByte(TableauProof.END);
+        out.flush();
+    }
+
+    private static int reference(Map<Node, Integer> index, Node node) {
+        return node == null ? 0 : index.get(node) + 1;
+    }
+
+    /**
+     * @return the index of `f`, defining it (and its subformulas) first
+     *         if it was not written yet
+     */
+    private int formula(Formula f) throws IOException {
+        Integer i = formulas.get(f);
+        if (i != null)
+            return i;
+
+        int[] subs = new int[f.subf().length];
+        for (int k = 0; k < subs.length; ++k)
+            subs[k] = formula(f.subf()[k]);
+
+        out.writeByte(TableauProof.FORMULA);
+        out.writeByte(kind(f));
+        if (f instanceof Variable) {
+            out.writeUTF(((Variable) f).name());
+        } else {
+            TableauProof.writeVarint(out, subs.length);
+            for (int sub : subs)
+                TableauProof.writeVarint(out, sub);
+        }
+        formulas.put(f, formulas.size());
+        return formulas.size() - 1;
+    }
+
+    private static int kind(Formula f) {
+        if (f instanceof Variable) return TableauProof.VARIABLE;
+        if (f instanceof Negation) return TableauProof.NEGATION;
+        if (f instanceof Conjunction) return TableauProof.CONJUNCTION;
+        if (f instanceof Disjunction) return TableauProof.DISJUNCTION;
+        if (f instanceof Implication) return TableauProof.IMPLICATION;
+        if (f instanceof Equivalence) return TableauProof.EQUIVALENCE;
+        throw new IllegalArgumentException("Unknown formula type: " + f.getClass());
+    }
+}
+
+/**
+ * Reads the TableauProof format node by node (formula definitions
+ * are handled internally).
+ *
+ * Formulas defined more than once get the same (first) index,
+ * so signed formulas are equal if and only if their refs are equal.
+ */
+class TableauProofReader {
+    private final DataInputStream in;
+    private final List<Formula> formulas = new ArrayList<Formula>();
+    private final List<Integer> canonical = new ArrayList<Integer>();
+    private final Map<Formula, Integer> indices = new HashMap<Formula, Integer>();
+
+    private int index = -1;
+    private int ref;
+    private int source;
+    private int closedFrom;
+    private int children;
+
+    public TableauProofReader(InputStream in) throws IOException {
+        this.in = new DataInputStream(in);
+        byte[] magic = new byte[TableauProof.MAGIC.length];
+        this.in.readFully(magic);
+        if (!Arrays.equals(magic, TableauProof.MAGIC))
+            throw new IOException("Not a tableau proof");
+    }
+
+    /**
+     * Read the next node.
+     *
+     * @return false at the end of the proof
+     */
+    public boolean next() throws IOException {
+        for (;;) {
+            int tag;
+            try {
+                tag = in.readUnsignedByte();
+            } catch (EOFException e) {
+                throw new IOException("Bad proof: missing end record");
+            }
+            if (tag == TableauProof.END)
+                return false;
+            if (tag == TableauProof.FORMULA) {
+                readFormula();
+                continue;
+            }
+            if (tag != TableauProof.NODE)
+                throw new IOException("Bad proof: unknown record " + tag);
+
+            int sf = TableauProof.readVarint(in);
+            ref = canonical.get(checkFormula(sf >>> 1)) * 2 + (sf & 1);
+            source = TableauProof.readVarint(in) - 1;
+            closedFrom = TableauProof.readVarint(in) - 1;
+            children = TableauProof.readVarint(in);
+            ++index;
+            if (source >= index || closedFrom >= index)
+                throw new IOException("Bad proof: forward reference in node " + index);
+            return true;
+        }
+    }
+
+    private void readFormula() throws IOException {
+        int kind = in.readUnsignedByte();
+        Formula f;
+        if (kind == TableauProof.VARIABLE) {
+            f = new Variable(in.readUTF());
+        } else {
+            Formula[] subs = new Formula[TableauProof.readVarint(in)];
+            for (int k = 0; k < subs.length; ++k)
+                subs[k] = formulas.get(checkFormula(TableauProof.readVarint(in)));
+            f = composite(kind, subs);
+        }
+        Integer first = indices.putIfAbsent(f, formulas.size());
+        canonical.add(first != null ? first : formulas.size());
+        formulas.add(f);
+    }
+
+    private int checkFormula(int i) throws IOException {
+        if (i >= formulas.size())
+            throw new IOException("Bad proof: undefined formula " + i);
+        return i;
+    }
+
+    private static Formula composite(int kind, Formula[] subs) throws IOException {
+        switch (kind) {
+            case TableauProof.NEGATION:
+                if (subs.length == 1) return new Negation(subs[0]);
+                break;
+            case TableauProof.CONJUNCTION:
+                return new Conjunction(subs);
+            case TableauProof.DISJUNCTION:
+                return new Disjunction(subs);
+            case TableauProof.IMPLICATION:
+                if (subs.length == 2) return new Implication(subs[0], subs[1]);
+                break;
+            case TableauProof.EQUIVALENCE:
+                if (subs.length == 2) return new Equivalence(subs[0], subs[1]);
+                break;
+            default:
+                throw new IOException("Bad proof: unknown formula kind " + kind);
+        }
+        throw new IOException("Bad proof: wrong number of subformulas");
+    }
+
+    /** @return the preorder index of the current node */
+    public int index() { return index; }
+    /** @return the signed formula of the current node as formula index * 2 + sign */
+    public int ref() { return ref; }
+    /** @return the signed formula of the current node */
+    public SignedFormula sf() { return signedFormula(ref); }
+    /** @return the index of the source node or -1 */
+    public int source() { return source; }
+    /** @return the index of the closing pair or -1 */
+    public int closedFrom() { return closedFrom; }
+    /** @return the number of children of the current node */
+    public int children() { return children; }
+
+    public SignedFormula signedFormula(int ref) {
+        return new SignedFormula((ref & 1) == 1, formulas.get(ref >>> 1));
+    }
+
+    /**
+     * @return the ref of `sf` or -1 if its formula was not defined
+     */
+    public int refOf(SignedFormula sf) {
+        Integer i = indices.get(sf.f());
+        return i == null ? -1 : i * 2 + (sf.sign() ? 1 : 0);
+    }
+}
+
+/**
+ * Checks a TableauProof while it is read, without building Nodes:
+ * only the current branch is kept (signed formula refs).
+ *
+ * Every node without a source is an input; every other node must
+ * follow from its source (an ancestor) by the alpha or the beta rule,
+ * or by a KE rule (beta elimination or a cut on a subformula of a beta
+ * formula, see KeTableauBuilder). The proof closes if every leaf is
+ * on a branch closed by a complementary pair.
+ */
+class TableauProofChecker {
+    public static class Result {
+        /** true if all nodes follow the tableau rules */
+        public final boolean valid;
+        /** true if the proof is valid and all its branches are closed */
+        public final boolean closed;
+        /** the first problem found (null if there is none) */
+        public final String error;
+        /** number of nodes */
+        public final int nodes;
+        /** the input formulas (nodes without a source) */
+        public final List<SignedFormula> inputs;
+
+        Result(boolean valid, boolean closed, String error,
+                int nodes, List<SignedFormula> inputs) {
+            this.valid = valid;
+            this.closed = closed;
+            this.error = error;
+            this.nodes = nodes;
+            this.inputs = inputs;
+        }
+
+        @Override
+        public String toString() {
+            return (closed ? "closed" : valid ? "open" : "invalid: " + error)
+                + " nodes: " + nodes
+                + " inputs: " + inputs
+            ;
+        }
+    }
+
+    /** a node on the current branch */
+    private static class Entry {
+        final int index;
+        final int ref;
+        final int children;
+        final boolean closed;
+        int seen = 0;
+        int childSource = -1;
+        final List<Integer> childRefs = new ArrayList<Integer>();
+
+        Entry(int index, int ref, int children, boolean closed) {
+            this.index = index;
+            this.ref = ref;
+            this.children = children;
+            this.closed = closed;
+        }
+    }
+
+    private TableauProofReader proof;
+    private final Deque<Entry> path = new ArrayDeque<Entry>();
+    private final Map<Integer, Entry> onPath = new HashMap<Integer, Entry>();
+    private final Map<Integer, Integer> refs = new HashMap<Integer, Integer>();
+
+    /**
+     * Check the proof in `in`.
+     *
+     * @throws IOException if the stream is not in the TableauProof format
+     */
+    public Result check(InputStream in) throws IOException {
+        proof = new TableauProofReader(in);
+        path.clear();
+        onPath.clear();
+        refs.clear();
+
+        List<SignedFormula> inputs = new ArrayList<SignedFormula>();
+        String error = null;
+        boolean open = false;
+        int nodes = 0;
+        while (proof.next()) {
+            ++nodes;
+            if (error != null)
+                continue;
+            if (proof.source() < 0)
+                inputs.add(proof.sf());
+            error = checkNode();
+            if (error == null && proof.children() == 0 && !path.peek().closed)
+                open = true;
+            popFinished();
+        }
+        if (error == null && nodes == 0)
+            open = true;
+        if (error == null && !path.isEmpty())
+            error = "node " + path.peek().index + " is missing children";
+        return new Result(error == null, error == null && !open, error, nodes, inputs);
+    }
+
+    /**
+     * Check the current node of the reader and push it to the path.
+     *
+     * @return an error or null
+     */
+    private String checkNode() {
+        int index = proof.index();
+        Entry parent = path.peek();
+        if (parent == null && index > 0)
+            return "node " + index + " is a second root";
+
+        if (proof.source() >= 0) {
+            Entry source = onPath.get(proof.source());
+            if (source == null)
+                return "the source of node " + index + " is not its ancestor";
+            if (parent.childSource >= 0 && parent.childSource != proof.source())
+                return "siblings of node " + index + " have different sources";
+            parent.childSource = proof.source();
+        }
+        if (parent != null) {
+            parent.childRefs.add(proof.ref());
+            ++parent.seen;
+        }
+
+        boolean closed = parent != null && parent.closed;
+        if (proof.closedFrom() >= 0) {
+            Entry pair = onPath.get(proof.closedFrom());
+            if (pair == null)
+                return "the closing pair of node " + index + " is not its ancestor";
+            if (pair.ref != (proof.ref() ^ 1))
+                return "node " + index + " is not complementary to its closing pair";
+            closed = true;
+        }
+
+        if (proof.source() >= 0) {
+            String error = parent.children == 1
+                ? checkLinear(index, onPath.get(proof.source()))
+                : parent.seen == parent.children
+                    ? checkBranching(index, parent, onPath.get(proof.source()))
+                    : null;
+            if (error != null)
+                return error;
+        } else if (parent != null && parent.children > 1) {
+            return "node " + index + " is an input, but it has siblings";
+        }
+
+        Entry entry = new Entry(index, proof.ref(), proof.children(), closed);
+        path.push(entry);
+        onPath.put(index, entry);
+        refs.merge(entry.ref, 1, Integer::sum);
+        return null;
+    }
+
+    private boolean onBranch(SignedFormula sf) {
+        int ref = proof.refOf(sf);
+        return ref >= 0 && refs.containsKey(ref);
+    }
+
+    /**
+     * A single child: the alpha rule or beta elimination.
+     */
+    private String checkLinear(int index, Entry source) {
+        SignedFormula sf = proof.sf();
+        SignedFormula from = proof.signedFormula(source.ref);
+        List<SignedFormula> subs = Arrays.asList(from.subf());
+        if (!subs.contains(sf))
+            return "node " + index + " is not a subformula of its source";
+        if (from.type() == SignedFormula.Type.Beta)
+            for (SignedFormula other : subs)
+                if (!other.equals(sf) && !onBranch(other.neg()))
+                    return "node " + index + " is not a beta elimination:"
+                        + " the complement of " + other + " is not on the branch";
+        return null;
+    }
+
+    /**
+     * All children of `parent` were read: the beta rule or a cut.
+     */
+    private String checkBranching(int index, Entry parent, Entry source) {
+        SignedFormula from = proof.signedFormula(source.ref);
+        List<SignedFormula> subs = Arrays.asList(from.subf());
+        List<SignedFormula> children = new ArrayList<SignedFormula>();
+        for (int ref : parent.childRefs)
+            children.add(proof.signedFormula(ref));
+
+        if (from.type() == SignedFormula.Type.Beta
+                && children.size() == subs.size()
+                && children.containsAll(subs) && subs.containsAll(children))
+            return null;
+        if (children.size() == 2
+                && children.get(1).equals(children.get(0).neg())
+                && subs.contains(children.get(0)))
+            return null;
+        return "children of node " + parent.index
+            + " are neither a beta expansion nor a cut of node " + source.index;
+    }
+
+    private void popFinished() {
+        while (!path.isEmpty() && path.peek().seen == path.peek().children) {
+            Entry entry = path.pop();
+            onPath.remove(entry.index);
+            refs.computeIfPresent(entry.ref, (r, n) -> n == 1 ? null : n - 1);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Decides whether a tableau for a set of signed formulas closes,
+ * without building the Tableau / Node tree.
+ *
+ * The (virtual) tableau is expanded depth first. Only the current branch
+ * is kept in memory: when a branch closes, everything below its last
+ * beta expansion is dropped and only counters remain. Memory use is
+ * therefore proportional to the length of a branch, not to the size
+ * of the tableau.
+ *
+ * The search stops at the first complete open branch, which gives
+ * a witness (satisfying) valuation.
+ */
+class TableauProver {
+    public static class Result {
+        /** true if the tableau is closed */
+        public final boolean closed;
+        /** a valuation satisfying the open branch (null if closed) */
+        public final Map<String, Boolean> valuation;
+        /** number of nodes the tableau would have */
+        public final long nodes;
+        /** number of closed branches */
+        public final long closedBranches;
+        /** length of the longest branch */
+        public final int maxDepth;
+
+        Result(boolean closed, Map<String, Boolean> valuation,
+                long nodes, long closedBranches, int maxDepth) {
+            this.closed = closed;
+            this.valuation = valuation;
+            this.nodes = nodes;
+            this.closedBranches = closedBranches;
+            this.maxDepth = maxDepth;
+        }
+
+        @Override
+        public String toString() {
+            return (closed ? "closed" : "open " + valuation)
+                + " nodes: " + nodes
+                + " closed branches: " + closedBranches
+                + " max depth: " + maxDepth
+            ;
+        }
+    }
+
+    // the current branch: formulas in the order they were added,
+    // expanded.get(i) iff path.get(i) has been expanded on it
+    private final List<SignedFormula> path = new ArrayList<SignedFormula>();
+    private final BitSet expanded = new BitSet();
+    private final Set<SignedFormula> onBranch = new HashSet<SignedFormula>();
+
+    private long nodes;
+    private long closedBranches;
+    private int maxDepth;
+
+    public Result prove(SignedFormula[] sfs) {
+        path.clear();
+        expanded.clear();
+        onBranch.clear();
+        nodes = 0;
+        closedBranches = 0;
+        maxDepth = 0;
+
+        boolean closed = false;
+        for (SignedFormula sf : sfs) {
+            if (!append(sf)) {
+                closed = true;
+                break;
+            }
+        }
+        if (!closed)
+            closed = expand(0);
+
+        Map<String, Boolean> valuation = null;
+        if (!closed) {
+            valuation = new HashMap<String, Boolean>();
+            for (SignedFormula sf : sfs)
+                for (String var : sf.f().vars())
+                    valuation.put(var, false);
+            for (SignedFormula sf : path)
+                if (sf.f() instanceof Variable)
+                    valuation.put(((Variable) sf.f()).name(), sf.sign());
+        }
+        return new Result(closed, valuation, nodes, closedBranches, maxDepth);
+    }
+
+    /**
+     * Add a formula to the current branch.
+     *
+     * @return false if the branch closed
+     */
+    private boolean append(SignedFormula sf) {
+        ++nodes;
+        if (onBranch.contains(sf.neg())) {
+            ++closedBranches;
+            return false;
+        }
+        if (onBranch.add(sf)) {
+            path.add(sf);
+            maxDepth = Math.max(maxDepth, path.size());
+        }
+        return true;
+    }
+
+    /**
+     * Remove the formulas added at index `mark` and later.
+     */
+    private void truncate(int mark) {
+        for (int i = path.size() - 1; i >= mark; --i)
+            onBranch.remove(path.remove(i));
+        expanded.clear(mark, Math.max(mark, expanded.length()));
+    }
+
+    /**
+     * Expand the current branch. All formulas before `start`
+     * have been considered for alpha expansion already.
+     *
+     * @return true if all branches below closed
+     */
+    private boolean expand(int start) {
+        for (int i = start; i < path.size(); ++i) {
+            SignedFormula sf = path.get(i);
+            if (sf.type() != SignedFormula.Type.Alpha)
+                continue;
+            expanded.set(i);
+            for (SignedFormula sub : sf.subf())
+                if (!append(sub))
+                    return true;
+        }
+
+        int beta = -1;
+        for (int i = 0; i < path.size(); ++i) {
+            if (!expanded.get(i) && path.get(i).type() == SignedFormula.Type.Beta) {
+                beta = i;
+                break;
+            }
+        }
+        if (beta < 0)
+            return false; // complete open branch
+
+        expanded.set(beta);
+        int mark = path.size();
+        for (SignedFormula sub : path.get(beta).subf()) {
+            boolean closed = !append(sub) || expand(mark);
+            if (!closed)
+                return false; // keep the open branch for the valuation
+            truncate(mark);
+        }
+        expanded.clear(beta);
+        return true;
+    }
+}
@@ -0,0 +1,315 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes tableaux as a plain text tree (the format of Tableau.toString),
+ * as a Graphviz DOT graph or as JSON.
+ *
+ * All formats are streamed to a Writer. The text renderer computes
+ * the width and height of all subtrees once (bottom up) and then
+ * writes the tree line by line, so the work is linear in the size
+ * of the output (no intermediate lists of lines per subtree).
+ * Nothing is done recursively, so deep tableaux are fine.
+ */
+class TableauRenderer {
+    private static final String SEPARATOR = " | ";
+    private static final char[] SPACES = new char[256];
+    static {
+        Arrays.fill(SPACES, ' ');
+    }
+
+    /** width and height of a subtree */
+    private static class Box {
+        int width;
+        int height;
+        int headers; // lines of the node itself (label, closed, separator)
+    }
+
+    /**
+     * An item on the current output line: a node's box, a separator
+     * between siblings or just spaces.
+     */
+    private static class Item {
+        static final int PAD = 0, SEP = 1, NODE = 2;
+        final int kind;
+        final int width;
+        final Node node;  // NODE
+        final int start;  // NODE: first line of the box
+        final int end;    // SEP: visible before this line
+        Item(int kind, int width, Node node, int start, int end) {
+            this.kind = kind;
+            this.width = width;
+            this.node = node;
+            this.start = start;
+            this.end = end;
+        }
+        static Item pad(int width) { return new Item(PAD, width, null, 0, 0); }
+    }
+
+    private TableauRenderer() {
+    }
+
+    /**
+     * Write the tree of `root` in the plain text format
+     * (lines are separated by, but not terminated with, a newline).
+     */
+    public static void writeText(Node root, Writer w) throws IOException {
+        Map<Node, Box> boxes = boxes(root);
+
+        List<Item> line = new ArrayList<Item>();
+        line.add(new Item(Item.NODE, boxes.get(root).width, root, 0, 0));
+        int height = boxes.get(root).height;
+
+        for (int row = 0; row < height; ++row) {
+            if (row > 0)
+                w.write('\n');
+            List<Item> next = new ArrayList<Item>(line.size());
+            for (Item item : line)
+                writeItem(item, row, boxes, w, next);
+            line = next;
+        }
+    }
+
+    /**
+     * Writes one item on line `row` and adds the item(s) that
+     * take its place on the next line to `next`.
+     */
+    private static void writeItem(
+        Item item, int row, Map<Node, Box> boxes, Writer w, List<Item> next
+    ) throws IOException {
+        if (item.kind == Item.PAD) {
+            spaces(w, item.width);
+            addPad(next, item.width);
+            return;
+        }
+        if (item.kind == Item.SEP) {
+            if (row < item.end) {
+                w.write(SEPARATOR);
+                next.add(item);
+            } else {
+                spaces(w, item.width);
+                addPad(next, item.width);
+            }
+            return;
+        }
+
+        // a node item is replaced by its children after its own lines
+        Node node = item.node;
+        Box box = boxes.get(node);
+        int r = row - item.start;
+        if (r >= box.height) {
+            spaces(w, box.width);
+            addPad(next, box.width);
+            return;
+        }
+        String s = header(node, r, box.width);
+        int left = (box.width - s.length()) / 2;
+        spaces(w, left);
+        w.write(s);
+        spaces(w, box.width - s.length() - left);
+        if (r + 1 < box.headers || node.children().isEmpty())
+            next.add(item);
+        else
+            addChildren(node, row + 1, item.start + box.height, boxes, next);
+    }
+
+    private static void addChildren(
+        Node node, int start, int end, Map<Node, Box> boxes, List<Item> next
+    ) {
+        List<Node> children = node.children();
+        int childrenWidth = SEPARATOR.length() * (children.size() - 1);
+        for (Node child : children)
+            childrenWidth += boxes.get(child).width;
+        int left = (boxes.get(node).width - childrenWidth) / 2;
+        int right = boxes.get(node).width - childrenWidth - left;
+
+        addPad(next, left);
+        for (int i = 0; i < children.size(); ++i) {
+            if (i > 0)
+                next.add(new Item(Item.SEP, SEPARATOR.length(), null, 0, end));
+            Node child = children.get(i);
+            next.add(new Item(Item.NODE, boxes.get(child).width, child, start, 0));
+        }
+        addPad(next, right);
+    }
+
+    private static void addPad(List<Item> items, int width) {
+        if (width == 0)
+            return;
+        int last = items.size() - 1;
+        if (last >= 0 && items.get(last).kind == Item.PAD)
+            items.set(last, Item.pad(items.get(last).width + width));
+        else
+            items.add(Item.pad(width));
+    }
+
+    /**
+     * @return the r-th line of the node itself:
+     *         the label, the closing mark and the separator from children
+     */
+    private static String header(Node node, int r, int width) {
+        if (r == 0)
+            return node.label();
+        if (r == 1 && node.closedFrom() != null)
+            return "* [" + node.number() + "," + node.closedFrom().number() + "]";
+        return repeat(isLastInput(node) ? '=' : '-', width);
+    }
+
+    private static boolean isLastInput(Node node) {
+        return node.source() == null
+            && !node.children().isEmpty()
+            && node.children().get(0).source() != null;
+    }
+
+    private static int headers(Node node) {
+        int n = 1;
+        if (node.closedFrom() != null)
+            ++n;
+        if (isLastInput(node) || node.children().size() > 1)
+            ++n;
+        return n;
+    }
+
+    /**
+     * Computes the boxes of all subtrees bottom up (without recursion).
+     */
+    private static Map<Node, Box> boxes(Node root) {
+        Map<Node, Box> boxes = new IdentityHashMap<Node, Box>();
+        Deque<Node> stack = new ArrayDeque<Node>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            Node node = stack.peek();
+            if (!boxes.containsKey(node)) {
+                // first visit: children first
+                boxes.put(node, null);
+                for (Node child : node.children())
+                    stack.push(child);
+                continue;
+            }
+            stack.pop();
+            Box box = new Box();
+            List<Node> children = node.children();
+            int childrenWidth = SEPARATOR.length() * Math.max(0, children.size() - 1);
+            int childrenHeight = 0;
+            for (Node child : children) {
+                Box cb = boxes.get(child);
+                childrenWidth += cb.width;
+                childrenHeight = Math.max(childrenHeight, cb.height);
+            }
+            box.width = Math.max(node.label().length(), childrenWidth);
+            box.headers = headers(node);
+            box.height = box.headers + childrenHeight;
+            boxes.put(node, box);
+        }
+        return boxes;
+    }
+
+    private static void spaces(Writer w, int n) throws IOException {
+        while (n > 0) {
+            int k = Math.min(n, SPACES.length);
+            w.write(SPACES, 0, k);
+            n -= k;
+        }
+    }
+
+    private static String repeat(char c, int n) {
+        StringBuilder sb = new StringBuilder(n);
+        for (int i = 0; i < n; ++i)
+            sb.append(c);
+        return sb.toString();
+    }
+
+    /**
+     * Write the tableau as a Graphviz DOT digraph.
+     * Closing nodes are marked and linked (dashed) to their closing pair.
+     */
+    public static void writeDot(Tableau t, Writer w) throws IOException {
+        w.write("digraph tableau {\n");
+        w.write("  node [shape=plaintext];\n");
+        Deque<Node> stack = new ArrayDeque<Node>();
+        if (t.root() != null)
+            stack.push(t.root());
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            String label = node.label();
+            if (node.closedFrom() != null)
+                label += "\n*";
+            w.write("  n" + node.number() + " [label=" + quote(label) + "];\n");
+            for (Node child : node.children())
+                w.write("  n" + node.number() + " -> n" + child.number() + ";\n");
+            if (node.closedFrom() != null)
+                w.write("  n" + node.number() + " -> n" + node.closedFrom().number()
+                    + " [style=dashed, constraint=false];\n");
+            List<Node> children = node.children();
+            for (int i = children.size() - 1; i >= 0; --i)
+                stack.push(children.get(i));
+        }
+        w.write("}\n");
+    }
+
+    /**
+     * Write the tableau as JSON:
+     * {"size": n, "closed": bool, "nodes": [{"number": n, "sf": "T a",
+     * "source": n|null, "closedFrom": n|null, "children": [n, ...]}, ...]}
+     * with nodes in preorder.
+     */
+    public static void writeJson(Tableau t, Writer w) throws IOException {
+        w.write("{\"size\": " + t.size() + ", \"closed\": " + t.isClosed() + ", \"nodes\": [");
+        Deque<Node> stack = new ArrayDeque<Node>();
+        if (t.root() != null)
+            stack.push(t.root());
+        boolean first = true;
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            w.write(first ? "\n  " : ",\n  ");
+            first = false;
+            w.write("{\"number\": " + node.number());
+            w.write(", \"sf\": " + quote(node.sf().toString()));
+            w.write(", \"source\": " + number(node.source()));
+            w.write(", \"closedFrom\": " + number(node.closedFrom()));
+            w.write(", \"children\": [");
+            List<Node> children = node.children();
+            for (int i = 0; i < children.size(); ++i)
+                w.write((i > 0 ? ", " : "") + children.get(i).number());
+            w.write("]}");
+            for (int i = children.size() - 1; i >= 0; --i)
+                stack.push(children.get(i));
+        }
+        w.write("\n]}\n");
+    }
+
+    private static String number(Node node) {
+        return node == null ? "null" : Integer.toString(node.number());
+    }
+
+    /**
+     * @return `s` as a double quoted string with escapes
+     *         (valid both in JSON and DOT)
+     */
+    private static String quote(String s) {
+        StringBuilder sb = new StringBuilder(s.length() + 2);
+        sb.append('"');
+        for (int i = 0; i < s.length(); ++i) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                default:
+                    if (c < 0x20)
+                        sb.append(String.format("\\u%04x", (int) c));
+                    else
+                        sb.append(c);
+            }
+        }
+        sb.append('"');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,78 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Summary of a built tableau (see TableauBuilder.solve).
+ *
+ * Everything is taken from what the tableau recorded while it was
+ * built (counters, the first complete open branch); only the open
+ * branch itself is walked, from its leaf up to the root.
+ */
+class TableauResult {
+    /** the tableau */
+    public final Tableau tableau;
+    /** true if the tableau is closed */
+    public final boolean closed;
+    /** nodes of the first complete open branch from the root to the leaf
+     *  (null if the tableau is closed) */
+    public final List<Node> openBranch;
+    /** a valuation of the input variables satisfying the open branch
+     *  (null if the tableau is closed) */
+    public final Map<String, Boolean> valuation;
+    /** number of nodes */
+    public final int nodes;
+    /** length of the longest branch */
+    public final int maxDepth;
+    /** number of nodes added by the alpha rule */
+    public final long alphaExpansions;
+    /** number of beta rule applications */
+    public final long betaExpansions;
+    /** number of nodes added by beta elimination (KE tableaux) */
+    public final long betaEliminations;
+
+    TableauResult(Tableau t, SignedFormula[] sfs) {
+        this.tableau = t;
+        this.closed = t.isClosed();
+        this.nodes = t.size();
+        this.maxDepth = t.maxDepth();
+        this.alphaExpansions = t.alphaExtensions();
+        this.betaExpansions = t.betaExtensions();
+        this.betaEliminations = t.betaEliminations();
+
+        if (closed) {
+            openBranch = null;
+            valuation = null;
+            return;
+        }
+
+        List<Node> branch = new ArrayList<Node>();
+        for (Node n = t.completeLeaf(); n != null; n = n.parent())
+            branch.add(n);
+        Collections.reverse(branch);
+        openBranch = Collections.unmodifiableList(branch);
+
+        // variables not on the branch can have any value
+        Map<String, Boolean> v = new HashMap<String, Boolean>();
+        for (SignedFormula sf : sfs)
+            for (String var : sf.f().vars())
+                v.put(var, false);
+        for (Node n : branch)
+            if (n.sf().f() instanceof Variable)
+                v.put(((Variable) n.sf().f()).name(), n.sf().sign());
+        valuation = Collections.unmodifiableMap(v);
+    }
+
+    @Override
+    public String toString() {
+        return (closed ? "closed" : "open " + valuation)
+            + " nodes: " + nodes
+            + " max depth: " + maxDepth
+            + " alpha: " + alphaExpansions
+            + " beta: " + betaExpansions
+            + " eliminations: " + betaEliminations
+        ;
+    }
+}
@@ -1,9 +1,18 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Deque;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import static java.util.stream.Collectors.joining;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toSet;
@@ -13,6 +22,127 @@ class BadTableauException extends Exception {
     BadTableauException(Tableau t, String msg) { super(msg); this.t = t; }
 }
 
+/**
+ * A minimal JSON parser for checking TableauRenderer.writeJson:
+ * objects are Maps, arrays Lists, numbers Longs.
+ */
+class JsonParser {
+    private final String s;
+    private int pos = 0;
+
+    JsonParser(String s) { this.s = s; }
+
+    static Object parse(String s) {
+        JsonParser p = new JsonParser(s);
+        Object value = p.value();
+        p.skipSpace();
+        if (p.pos != s.length())
+            throw p.error("trailing characters");
+        return value;
+    }
+
+    private Object value() {
+        skipSpace();
+        if (pos >= s.length())
+            throw error("unexpected end");
+        char c = s.charAt(pos);
+        if (c == '{') {
+            Map<String, Object> obj = new LinkedHashMap<String, Object>();
+            ++pos;
+            if (!consume('}')) {
+                do {
+                    skipSpace();
+                    String key = string();
+                    expect(':');
+                    obj.put(key, value());
+                } while (consume(','));
+                expect('}');
+            }
+            return obj;
+        }
+        if (c == '[') {
+            List<Object> arr = new ArrayList<Object>();
+            ++pos;
+            if (!consume(']')) {
+                do {
+                    arr.add(value());
+                } while (consume(','));
+                expect(']');
+            }
+            return arr;
+        }
+        if (c == '"')
+            return string();
+        for (String word : new String[] { "true", "false", "null" }) {
+            if (s.startsWith(word, pos)) {
+                pos += word.length();
+                return word.equals("null") ? null : Boolean.valueOf(word);
+            }
+        }
+        int start = pos;
+        if (c == '-')
+            ++pos;
+        while (pos < s.length() && Character.isDigit(s.charAt(pos)))
+            ++pos;
+        if (pos == start || s.charAt(pos - 1) == '-')
+            throw error("unexpected character");
+        return Long.valueOf(s.substring(start, pos));
+    }
+
+    private String string() {
+        if (pos >= s.length() || s.charAt(pos) != '"')
+            throw error("string expected");
+        StringBuilder sb = new StringBuilder();
+        ++pos;
+        while (pos < s.length() && s.charAt(pos) != '"') {
+            char c = s.charAt(pos++);
+            if (c == '\\') {
+                if (pos >= s.length())
+                    break;
+                char e = s.charAt(pos++);
+                switch (e) {
+                    case 'n': sb.append('\n'); break;
+                    case 't': sb.append('\t'); break;
+                    case 'u':
+                        sb.append((char) Integer.parseInt(s.substring(pos, pos + 4), 16));
+                        pos += 4;
+                        break;
+                    default: sb.append(e);
+                }
+            } else if (c < 0x20) {
+                throw error("control character in a string");
+            } else {
+                sb.append(c);
+            }
+        }
+        expect('"');
+        return sb.toString();
+    }
+
+    private void skipSpace() {
+        while (pos < s.length() && Character.isWhitespace(s.charAt(pos)))
+            ++pos;
+    }
+
+    private boolean consume(char c) {
+        skipSpace();
+        if (pos < s.length() && s.charAt(pos) == c) {
+            ++pos;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(char c) {
+        if (!consume(c))
+            throw error("'" + c + "' expected");
+    }
+
+    private IllegalArgumentException error(String msg) {
+        return new IllegalArgumentException("JSON: " + msg + " at " + pos);
+    }
+}
+
 class Tester {
     int tested = 0;
     int passed = 0;
@@ -21,6 +151,14 @@ class Tester {
     int size = 0;
     int time = 0;
 
+    TableauBuilder builder = new TableauBuilder();
+    boolean verbose = true;
+    // accept KE rules (beta elimination and cut) for beta sources
+    boolean analyticCut = false;
+    // the builder stops at the first complete open branch, so only
+    // TableauResult.openBranch has to be complete
+    boolean stopAtOpenBranch = false;
+
     static final SignedFormula.Type Alpha = SignedFormula.Type.Alpha;
     static final SignedFormula.Type Beta = SignedFormula.Type.Beta;
 
@@ -40,7 +178,9 @@ class Tester {
     }
 
     public void startCase(String s) {
-        System.err.println(String.format("CASE %d: %s", ++ncase, s));
+        ++ncase;
+        if (verbose)
+            System.err.println(String.format("CASE %d: %s", ncase, s));
     }
 
     private SignedFormula.Type cType(SignedFormula.Type t) {
@@ -94,6 +234,32 @@ class Tester {
         return size(t.root());
     }
 
+    int depth(Node node) {
+        return 1 + node.children().stream().mapToInt(n->depth(n)).max().orElse(0);
+    }
+
+    /**
+     * @return the number of leaves below `node` with no closing node
+     *         on their branch
+     */
+    int openLeaves(Node node, boolean closedAbove) {
+        boolean closed = closedAbove || node.closedFrom() != null;
+        if (node.children().isEmpty())
+            return closed ? 0 : 1;
+        return node.children().stream().mapToInt(n->openLeaves(n, closed)).sum();
+    }
+
+    /**
+     * @return true if the valuation `v` satisfies `sf`
+     */
+    boolean satisfies(Map<String, Boolean> v, SignedFormula sf) {
+        if (sf.f() instanceof Variable)
+            return Boolean.valueOf(sf.sign()).equals(v.get(sf.f().toString()));
+        if (sf.type() == Alpha)
+            return Arrays.stream(sf.subf()).allMatch(ssf->satisfies(v, ssf));
+        return Arrays.stream(sf.subf()).anyMatch(ssf->satisfies(v, ssf));
+    }
+
     String openClosed(boolean isClosed) {
         return isClosed ? "closed" : "open";
     }
@@ -107,6 +273,37 @@ class Tester {
         testTableauStructure(t, t.root(), new ArrayDeque<Node>(), initials);
     }
 
+    void testKeRule(
+        Tableau t,
+        Node node,
+        Node src,
+        Deque<Node> ancestors
+    ) throws BadTableauException {
+        List<SignedFormula> subs = Arrays.asList(src.sf().subf());
+        List<Node> siblings = ancestors.peek().children();
+        if (siblings.size() == 1) {
+            if (!subs.contains(node.sf()))
+                throw new BadTableauException(t, String.format(
+                    "Node (%d) doesn't contain a subformula of it's source (%d).",
+                    node.number(), src.number()));
+            Set<SignedFormula> branch = ancestors.stream()
+                .map(n -> n.sf()).collect(toSet());
+            for (SignedFormula sf : subs)
+                if (!sf.equals(node.sf()) && !branch.contains(sf.neg()))
+                    throw new BadTableauException(t, String.format(
+                        "Node (%d) is not a beta elimination of (%d):"
+                        + " the complement of %s is not on the branch.",
+                        node.number(), src.number(), sf));
+        } else {
+            SignedFormula cut = siblings.get(0).sf();
+            if (siblings.size() != 2 || !subs.contains(cut)
+                    || !siblings.get(1).sf().equals(cut.neg()))
+                throw new BadTableauException(t, String.format(
+                    "Children of (%d) are not a cut on a subformula of (%d).",
+                    ancestors.peek().number(), src.number()));
+        }
+    }
+
     void testTableauStructure(
         Tableau t,
         Node node,
@@ -125,6 +322,9 @@ class Tester {
                 "Node (%d) has source (%d) which is not it's ancestor.",
                 node.number(), src.number()));
         }
+        else if (analyticCut && src.sf().type() == Beta) {
+            testKeRule(t, node, src, ancestors);
+        }
         else {
             Node parent = ancestors.peek();
             if (!Arrays.asList(src.sf().subf()).contains(node.sf()))
@@ -175,41 +375,11 @@ class Tester {
         ancestors.push(node);
 
         if (node.children().isEmpty()) {
-            if (ancestors.stream().allMatch(n -> n.closedFrom() == null)) {
+            if (!stopAtOpenBranch
+                    && ancestors.stream().allMatch(n -> n.closedFrom() == null)) {
                 // child on an open branch
                 // open branch should be complete
-                Set<SignedFormula> branch = ancestors
-                    .stream()
-                    .map(n->n.sf())
-                    .collect(toSet())
-                ;
-                // need to go over nodes to have reference numbers
-                for (Node nd : ancestors) {
-                    SignedFormula.Type type = nd.sf().type();
-                    if (type == Alpha) {
-                        List<SignedFormula> missing =
-                            Arrays.stream(nd.sf().subf())
-                            .filter(ssf->!branch.contains(ssf))
-                            .collect(toList())
-                        ;
-                        if (!missing.isEmpty())
-                            throw new BadTableauException(t, String.format(
-                                "Branch ending at (%d) is open but not complete"
-                                + " -- (%d) (Alpha) is missing subformula(s) %s.",
-                                node.number(), nd.number(), missing.toString()));
-                    }
-                    else if (type == Beta) {
-                        boolean have =
-                            Arrays.stream(nd.sf().subf())
-                            .anyMatch(ssf->branch.contains(ssf))
-                        ;
-                        if (!have)
-                            throw new BadTableauException(t, String.format(
-                                "Branch ending at (%d) is open but not complete"
-                                + " -- (%d) (Beta) is missing at least one of its subformulas %s.",
-                                node.number(), nd.number(),Arrays.asList(nd.sf().subf())));
-                    }
-                }
+                testComplete(t, node, ancestors);
             }
         } else {
             for (Node child : node.children())
@@ -218,22 +388,231 @@ class Tester {
         ancestors.pop();
     }
 
+    /**
+     * Check that the open branch `nodes` ending at `leaf` is complete.
+     */
+    void testComplete(
+        Tableau t,
+        Node leaf,
+        Collection<Node> nodes
+    ) throws BadTableauException {
+        Set<SignedFormula> branch = nodes
+            .stream()
+            .map(n->n.sf())
+            .collect(toSet())
+        ;
+        // need to go over nodes to have reference numbers
+        for (Node nd : nodes) {
+            SignedFormula.Type type = nd.sf().type();
+            if (type == Alpha) {
+                List<SignedFormula> missing =
+                    Arrays.stream(nd.sf().subf())
+                    .filter(ssf->!branch.contains(ssf))
+                    .collect(toList())
+                ;
+                if (!missing.isEmpty())
+                    throw new BadTableauException(t, String.format(
+                        "Branch ending at (%d) is open but not complete"
+                        + " -- (%d) (Alpha) is missing subformula(s) %s.",
+                        leaf.number(), nd.number(), missing.toString()));
+            }
+            else if (type == Beta) {
+                boolean have =
+                    Arrays.stream(nd.sf().subf())
+                    .anyMatch(ssf->branch.contains(ssf))
+                ;
+                if (!have)
+                    throw new BadTableauException(t, String.format(
+                        "Branch ending at (%d) is open but not complete"
+                        + " -- (%d) (Beta) is missing at least one of its subformulas %s.",
+                        leaf.number(), nd.number(),Arrays.asList(nd.sf().subf())));
+            }
+        }
+    }
+
+    void testResult(TableauResult r, Tableau t) throws BadTableauException {
+        if (r.closed != t.isClosed())
+            throw new BadTableauException(t, "TableauResult.closed differs from the tableau");
+        if (r.nodes != size(t))
+            throw new BadTableauException(t, String.format(
+                "TableauResult.nodes is %d, but the tableau has %d nodes",
+                r.nodes, size(t)));
+        if (r.maxDepth != depth(t.root()))
+            throw new BadTableauException(t, String.format(
+                "TableauResult.maxDepth is %d, but the tableau depth is %d",
+                r.maxDepth, depth(t.root())));
+        int open = openLeaves(t.root(), false);
+        if (t.openBranches() != open || t.openLeaves().size() != open)
+            throw new BadTableauException(t, String.format(
+                "Tableau has %d open leaves (%d open branches), but %d open branches",
+                t.openLeaves().size(), t.openBranches(), open));
+        if (r.closed)
+            return;
+
+        Node leaf = r.openBranch.get(r.openBranch.size() - 1);
+        if (r.openBranch.get(0) != t.root() || !leaf.children().isEmpty())
+            throw new BadTableauException(t,
+                "TableauResult.openBranch is not a branch from the root to a leaf");
+        for (Node n : r.openBranch) {
+            if (n.closedFrom() != null)
+                throw new BadTableauException(t, String.format(
+                    "TableauResult.openBranch contains a closing node (%d)", n.number()));
+            if (n.sf().f() instanceof Variable
+                    && r.valuation.get(n.sf().f().toString()) != n.sf().sign())
+                throw new BadTableauException(t, String.format(
+                    "TableauResult.valuation %s does not satisfy (%d)",
+                    r.valuation, n.number()));
+        }
+        testComplete(t, leaf, r.openBranch);
+    }
+
+    void testEvents(
+        JfrTableauListener events,
+        TableauResult r,
+        Tableau t
+    ) throws BadTableauException {
+        if (events.builds() != 1
+                || events.nodes() != r.nodes
+                || events.alphaExpansions() != r.alphaExpansions
+                || events.betaExpansions() != r.betaExpansions
+                || events.betaEliminations() != r.betaEliminations
+                || !analyticCut && r.betaEliminations != 0
+                || (events.completedBranches() > 0) == r.closed
+                || r.closed && events.closedBranches() == 0)
+            throw new BadTableauException(t, String.format(
+                "Listener events (%s) do not match the tableau (%s)", events, r));
+    }
+
+    void testProof(Tableau t, SignedFormula[] sfs) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new TableauProofWriter(bytes).write(t);
+        TableauProofChecker.Result r = new TableauProofChecker().check(
+            new ByteArrayInputStream(bytes.toByteArray()));
+        if (!r.valid || r.closed != t.isClosed() || r.nodes != t.size()
+                || !new HashSet<SignedFormula>(r.inputs).equals(
+                    new HashSet<SignedFormula>(Arrays.asList(sfs))))
+            throw new BadTableauException(t, String.format(
+                "Proof check of the written tableau failed: %s", r));
+    }
+
+    static final Pattern DOT_NODE = Pattern.compile("  n(\\d+) \\[label=(\".*\")\\];");
+    static final Pattern DOT_EDGE = Pattern.compile("  n(\\d+) -> n(\\d+)( \\[style=dashed, constraint=false\\])?;");
+
+    /**
+     * Check that TableauRenderer.writeDot writes every node with its
+     * label, an edge to each child and a dashed edge to its closing pair.
+     */
+    void testDot(Tableau t) throws Exception {
+        StringWriter w = new StringWriter();
+        TableauRenderer.writeDot(t, w);
+        String[] lines = w.toString().split("\n");
+        if (!lines[0].equals("digraph tableau {") || !lines[lines.length - 1].equals("}"))
+            throw new BadTableauException(t, "DOT output is not a digraph: " + w);
+
+        Map<Integer, String> labels = new LinkedHashMap<Integer, String>();
+        Set<List<Integer>> edges = new HashSet<List<Integer>>();
+        Set<List<Integer>> closing = new HashSet<List<Integer>>();
+        for (int i = 2; i < lines.length - 1; ++i) {
+            Matcher m = DOT_NODE.matcher(lines[i]);
+            Matcher e = DOT_EDGE.matcher(lines[i]);
+            if (m.matches())
+                labels.put(Integer.valueOf(m.group(1)), m.group(2));
+            else if (e.matches())
+                (e.group(3) == null ? edges : closing).add(Arrays.asList(
+                    Integer.valueOf(e.group(1)), Integer.valueOf(e.group(2))));
+            else
+                throw new BadTableauException(t, "Unexpected DOT line: " + lines[i]);
+        }
+
+        Map<Integer, String> expLabels = new LinkedHashMap<Integer, String>();
+        Set<List<Integer>> expEdges = new HashSet<List<Integer>>();
+        Set<List<Integer>> expClosing = new HashSet<List<Integer>>();
+        Deque<Node> stack = new ArrayDeque<Node>();
+        stack.push(t.root());
+        while (!stack.isEmpty()) {
+            Node n = stack.pop();
+            String label = n.label() + (n.closedFrom() != null ? "\\n*" : "");
+            expLabels.put(n.number(), "\"" + label.replace("\"", "\\\"") + "\"");
+            for (Node c : n.children()) {
+                expEdges.add(Arrays.asList(n.number(), c.number()));
+                stack.push(c);
+            }
+            if (n.closedFrom() != null)
+                expClosing.add(Arrays.asList(n.number(), n.closedFrom().number()));
+        }
+        if (!labels.equals(expLabels) || !edges.equals(expEdges) || !closing.equals(expClosing))
+            throw new BadTableauException(t, String.format(
+                "DOT output does not match the tableau:%n%s", w));
+    }
+
+    /**
+     * Check that TableauRenderer.writeJson writes valid JSON with
+     * the nodes of the tableau in preorder.
+     */
+    @SuppressWarnings("unchecked")
+    void testJson(Tableau t) throws Exception {
+        StringWriter w = new StringWriter();
+        TableauRenderer.writeJson(t, w);
+        Map<String, Object> json = (Map<String, Object>) JsonParser.parse(w.toString());
+        List<Object> nodes = (List<Object>) json.get("nodes");
+        if (!json.get("size").equals((long) t.size())
+                || !json.get("closed").equals(t.isClosed())
+                || nodes.size() != t.size())
+            throw new BadTableauException(t, "JSON header does not match the tableau: " + json);
+
+        int i = 0;
+        Deque<Node> stack = new ArrayDeque<Node>();
+        stack.push(t.root());
+        while (!stack.isEmpty()) {
+            Node n = stack.pop();
+            Map<String, Object> exp = new LinkedHashMap<String, Object>();
+            exp.put("number", (long) n.number());
+            exp.put("sf", n.sf().toString());
+            exp.put("source", n.source() == null ? null : (long) n.source().number());
+            exp.put("closedFrom", n.closedFrom() == null ? null : (long) n.closedFrom().number());
+            List<Object> children = new ArrayList<Object>();
+            for (Node c : n.children())
+                children.add((long) c.number());
+            exp.put("children", children);
+            if (!exp.equals(nodes.get(i)))
+                throw new BadTableauException(t, String.format(
+                    "JSON node %d is %s, expected %s", i, nodes.get(i), exp));
+            ++i;
+            List<Node> cs = n.children();
+            for (int k = cs.size() - 1; k >= 0; --k)
+                stack.push(cs.get(k));
+        }
+    }
+
     void testTableau(boolean expClosed, SignedFormula[] sfs) {
-        System.err.println();
-        System.err.println();
+        if (verbose) {
+            System.err.println();
+            System.err.println();
+        }
         startCase(
             Arrays.stream(sfs).map(sf->sf.toString()).collect(joining("; "))
         );
         tested++;
 
-        TableauBuilder builder = new TableauBuilder();
-
         try {
+            JfrTableauListener events = new JfrTableauListener();
             long start = System.nanoTime();
-            Tableau t = builder.build(sfs);
+            builder.setListener(events);
+            TableauResult result;
+            try {
+                result = builder.solve(sfs);
+            } finally {
+                builder.setListener(null);
+            }
             long duration = (System.nanoTime() - start) / 1000;
+            Tableau t = result.tableau;
 
             testTableauStructure(t, new HashSet<SignedFormula>(Arrays.asList(sfs)));
+            testResult(result, t);
+            testEvents(events, result, t);
+            testProof(t, sfs);
+            testDot(t);
+            testJson(t);
             time += duration;
             size += size(t);
 
@@ -243,9 +622,24 @@ class Tester {
                         openClosed(t.isClosed()), openClosed(expClosed)));
             }
 
+            TableauProver.Result proved = new TableauProver().prove(sfs);
+            if (proved.closed != expClosed) {
+                throw new BadTableauException(t,
+                    String.format("FAILED: TableauProver says %s, but should be %s",
+                        openClosed(proved.closed), openClosed(expClosed)));
+            }
+            if (!proved.closed) {
+                for (SignedFormula sf : sfs)
+                    if (!satisfies(proved.valuation, sf))
+                        throw new BadTableauException(t, String.format(
+                            "FAILED: TableauProver valuation %s does not satisfy %s",
+                            proved.valuation, sf));
+            }
+
             passed++;
-            System.err.println(String.format("PASSED: time: %6d  tableau size: %3d  %s",
-                duration, size(t), openClosed(expClosed)));
+            if (verbose)
+                System.err.println(String.format("PASSED: time: %6d  tableau size: %3d  %s",
+                    duration, size(t), openClosed(expClosed)));
         } catch (BadTableauException e) {
             System.err.println("FAIlED: Bad tableau: " + e.getMessage());
             System.err.println("=====");
@@ -289,6 +683,11 @@ public class TableauTest {
     static final SignedFormula.Type Beta = SignedFormula.Type.Beta;
 
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("--benchmark")) {
+            benchmark(args.length > 1 ? Integer.parseInt(args[1]) : 5);
+            return;
+        }
+
         Tester t = new Tester();
         Variable a = Var("a");
         Variable b = Var("bb");
@@ -429,9 +828,160 @@ public class TableauTest {
             e.printStackTrace();
         }
 
+        System.err.println();
+        try {
+            t.startCase("BranchIndex mark / undo");
+            BranchIndex index = new BranchIndex();
+            Node na = new Node(T(a), null);
+            index.add(na);
+            index.add(new Node(T(Or(b, c)), null));
+            index.markExpanded(T(Or(b, c)));
+            int mark = index.mark();
+
+            t.compare(index.add(new Node(T(a), null)), false, "add of a formula already on the branch");
+            index.add(new Node(F(b), null));
+            index.add(new Node(T(Impl(c, d)), null));
+            index.markExpanded(T(Impl(c, d)));
+            t.compare(index.complementOf(T(b)) != null, true, "complementOf after the mark");
+            t.compare(index.isExpanded(T(Impl(c, d))), true, "isExpanded after the mark");
+            t.compare(index.size(), 4, "size before undo");
+
+            index.undo(mark);
+            t.compare(index.size(), 2, "size after undo");
+            t.compare(index.contains(T(a)), true, "contains a formula added before the mark");
+            t.compare(index.get(T(a)) == na, true, "the original node is kept");
+            t.compare(index.contains(T(Or(b, c))), true, "contains an expanded formula added before the mark");
+            t.compare(index.isExpanded(T(Or(b, c))), true, "isExpanded before the mark");
+            t.compare(index.complementOf(F(a)) == na, true, "complementOf a formula added before the mark");
+            t.compare(index.contains(F(b)), false, "contains a formula added after the mark");
+            t.compare(index.complementOf(T(b)) == null, true, "complementOf a formula added after the mark");
+            t.compare(index.contains(T(Impl(c, d))), false, "contains an expanded formula added after the mark");
+            t.compare(index.isExpanded(T(Impl(c, d))), false, "isExpanded after the mark");
+            t.compare(index.mark(), mark, "mark after undo");
+        } catch (Throwable e) {
+            t.fail("Exception: " + e.toString());
+            e.printStackTrace();
+        }
+
+        System.err.println();
+        try {
+            t.startCase("KE beta elimination");
+            // T(a|b), F a: b by elimination, then T(b->c): c by elimination
+            TableauResult r = new KeTableauBuilder().solve(
+                SFS( T(Or(a, b)), F(a), T(Impl(b, c)) ));
+            t.compare(r.closed, false, "KE tableau is open");
+            t.compare(r.betaEliminations, 2L, "KE beta eliminations");
+            t.compare(r.alphaExpansions, 0L, "KE eliminations are not alpha expansions");
+            t.compare(r.betaExpansions, 0L, "KE eliminations do not branch");
+            t.compare(r.valuation.get("cccc"), true, "KE elimination valuation");
+        } catch (Throwable e) {
+            t.fail("Exception: " + e.toString());
+            e.printStackTrace();
+        }
+
 
         boolean correctRules = t.tested == t.passed;
 
+        testTableaux(t);
+
+        // the parallel builder, complete and in the satisfiability mode
+        for (boolean sat : new boolean[] { false, true }) {
+            t.builder = new ParallelTableauBuilder(sat);
+            t.stopAtOpenBranch = sat;
+            testTableaux(t);
+        }
+
+        // the KE builder (analytic cut and beta elimination)
+        t.builder = new KeTableauBuilder();
+        t.stopAtOpenBranch = false;
+        t.analyticCut = true;
+        testTableaux(t);
+
+        if (!correctRules) {
+            System.err.println();
+            System.err.println();
+            System.err.println("WARNING:");
+            System.err.println("getType and signedSub implementations are not correct.");
+            System.err.println("Any PASSED tableaux can be false positives!");
+            System.err.println();
+        }
+
+        System.exit(t.status() ? 0 : 1);
+    }
+
+    /**
+     * Builds the tableaux from testTableaux with every SelectionStrategy
+     * (and with the parallel and KE builders) and reports the total tableau size
+     * and build time for each.
+     * Run with `--benchmark` as the first argument.
+     */
+    static void benchmark(int rounds) {
+        List<TableauBuilder> builders = new ArrayList<TableauBuilder>();
+        for (SelectionStrategy strategy : SelectionStrategy.all())
+            builders.add(new TableauBuilder(strategy));
+        builders.add(new ParallelTableauBuilder());
+        builders.add(new KeTableauBuilder());
+        builders.add(new KeTableauBuilder(new PreferClosing()));
+
+        System.err.println(String.format("%-30s %8s %12s %8s",
+            "builder", "size", "time[us]", "passed"));
+        boolean ok = true;
+        for (TableauBuilder builder : builders) {
+            Tester t = null;
+            int time = Integer.MAX_VALUE;
+            for (int r = 0; r < rounds; ++r) {
+                t = new Tester();
+                t.builder = builder;
+                t.verbose = false;
+                t.analyticCut = builder instanceof KeTableauBuilder;
+                testTableaux(t);
+                time = Math.min(time, t.time);
+            }
+            System.err.println(String.format("%-30s %8d %12d %4d/%-3d",
+                builder.name(), t.size, time, t.passed, t.tested));
+            ok &= t.tested == t.passed;
+        }
+
+        // all 2^n clauses over n variables (unsatisfiable): the beta rule
+        // repeats subtrees that the KE cut builds only once
+        System.err.println();
+        System.err.println(String.format("%-30s %3s %8s %12s",
+            "builder", "n", "size", "time[us]"));
+        for (TableauBuilder builder : builders) {
+            for (int n = 2; n <= 6; ++n) {
+                SignedFormula[] sfs = allClauses(n);
+                TableauResult r = null;
+                long time = Long.MAX_VALUE;
+                for (int i = 0; i < rounds; ++i) {
+                    long start = System.nanoTime();
+                    r = builder.solve(sfs);
+                    time = Math.min(time, (System.nanoTime() - start) / 1000);
+                }
+                System.err.println(String.format("%-30s %3d %8d %12d",
+                    builder.name(), n, r.nodes, time));
+                ok &= r.closed;
+            }
+        }
+        System.exit(ok ? 0 : 1);
+    }
+
+    static SignedFormula[] allClauses(int n) {
+        SignedFormula[] sfs = new SignedFormula[1 << n];
+        for (int m = 0; m < sfs.length; ++m) {
+            Formula[] lits = new Formula[n];
+            for (int i = 0; i < n; ++i)
+                lits[i] = ((m >> i) & 1) == 1 ? Var("p" + i) : Not(Var("p" + i));
+            sfs[m] = T(Or(lits));
+        }
+        return sfs;
+    }
+
+    static void testTableaux(Tester t) {
+        Variable a = Var("a");
+        Variable b = Var("bb");
+        Variable c = Var("cccc");
+        Variable d = Var("ddddd");
+
         t.testTableau(false, SFS(T(a)));
 
         t.testTableau(true, SFS(T(a), F(a)));
@@ -556,17 +1106,5 @@ public class TableauTest {
             t.testTableau(false, SFS( T(cax1) ));
             t.testTableau(false, SFS( F(conclusion) ));
         }
-
-
-        if (!correctRules) {
-            System.err.println();
-            System.err.println();
-            System.err.println("WARNING:");
-            System.err.println("getType and signedSub implementations are not correct.");
-            System.err.println("Any PASSED tableaux can be false positives!");
-            System.err.println();
-        }
-
-        System.exit(t.status() ? 0 : 1);
     }
 }
@@ -0,0 +1,212 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Clauses of a resolution derivation (int[] clauses, see SymbolTable).
+ *
+ * Every clause is added only once (duplicates are recognized by a hash
+ * set). Active clauses are indexed by their literals: for each literal
+ * there is an occurrence list of the active clauses that contain it, so
+ * the clauses a clause can be resolved with (on a literal lit, those
+ * containing lit ^ 1) are listed directly, and so are the candidates
+ * for subsumption.
+ *
+ * Each clause has a 64-bit signature (a bit for each of its literals,
+ * by hash); if C is a subset of D, then the signature of C is a subset
+ * of the signature of D, so most subset checks are decided by one `&`.
+ *
+ * The store counts the clauses that were added and not deleted yet
+ * (and their literals), so that engines can keep them within a budget.
+ */
+class ClauseStore {
+    static class Entry {
+        final long id;
+        final int[] lits;
+        final long signature;
+        private final int hash;
+        boolean active = false;
+        boolean deleted = false;
+        // the number of kept resolvents this clause is a parent of
+        int uses = 0;
+        // the id of this clause in the proof (only with a proof)
+        int proofId = 0;
+
+        Entry(long id, int[] lits) {
+            this.id = id;
+            this.lits = lits;
+            this.signature = IntClause.signature(lits);
+            this.hash = Arrays.hashCode(lits);
+        }
+
+        /**
+         * @return true if this clause is a subset of `other`
+         */
+        boolean subsumes(Entry other) {
+            return (signature & ~other.signature) == 0
+                && IntClause.subset(lits, other.lits);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) return true;
+            if (!(other instanceof Entry)) return false;
+            Entry e = (Entry) other;
+            return hash == e.hash && Arrays.equals(lits, e.lits);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public String toString() {
+            return Arrays.toString(lits);
+        }
+    }
+
+    private final Set<Entry> seen = new HashSet<Entry>();
+    private final List<List<Entry>> occurrences = new ArrayList<List<Entry>>();
+    private int active = 0;
+    private long nextId = 0;
+    private long size = 0;
+    private long literals = 0;
+
+    /**
+     * Add a clause (if it was not added before).
+     * Entries of new clauses get increasing ids.
+     *
+     * @return the entry of the new clause or null
+     */
+    public Entry add(int[] c) {
+        Entry e = new Entry(nextId, c);
+        if (!seen.add(e))
+            return null;
+        ++nextId;
+        ++size;
+        literals += c.length;
+        return e;
+    }
+
+    /**
+     * Forget that the clause was added, so that it can be added again
+     * (the entry must be deleted first). This frees its memory.
+     */
+    public void forget(Entry e) {
+        seen.remove(e);
+    }
+
+    /**
+     * @return the number of added clauses that are not deleted
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * @return the number of literals in added clauses that are not deleted
+     */
+    public long literals() {
+        return literals;
+    }
+
+    /**
+     * @return the number of active clauses
+     */
+    public int active() {
+        return active;
+    }
+
+    /**
+     * Make the clause active: add it to the occurrence lists of its literals.
+     */
+    public void activate(Entry e) {
+        e.active = true;
+        ++active;
+        for (int lit : e.lits) {
+            while (occurrences.size() <= lit)
+                occurrences.add(new ArrayList<Entry>());
+            occurrences.get(lit).add(e);
+        }
+    }
+
+    /**
+     * Delete a clause; an active clause is removed from the occurrence lists.
+     */
+    public void delete(Entry e) {
+        if (e.deleted)
+            return;
+        e.deleted = true;
+        --size;
+        literals -= e.lits.length;
+        if (!e.active)
+            return;
+        e.active = false;
+        --active;
+        for (int lit : e.lits) {
+            List<Entry> es = occurrences.get(lit);
+            for (int i = es.size() - 1; i >= 0; --i) {
+                if (es.get(i) == e) {
+                    es.remove(i);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the active clauses that contain `lit`
+     */
+    public List<Entry> containing(int lit) {
+        return lit < occurrences.size()
+            ? occurrences.get(lit)
+            : Collections.<Entry>emptyList();
+    }
+
+    /**
+     * @return all active clauses
+     */
+    public List<Entry> activeEntries() {
+        List<Entry> es = new ArrayList<Entry>(active);
+        for (int lit = 0; lit < occurrences.size(); ++lit)
+            for (Entry e : occurrences.get(lit))
+                if (e.lits[0] == lit) // list each clause once
+                    es.add(e);
+        return es;
+    }
+
+    /**
+     * @return an active clause that subsumes `e` or null
+     */
+    public Entry subsumer(Entry e) {
+        for (int lit : e.lits)
+            for (Entry other : containing(lit))
+                if (other.subsumes(e))
+                    return other;
+        return null;
+    }
+
+    /**
+     * @return the active clauses that `e` subsumes
+     */
+    public List<Entry> subsumed(Entry e) {
+        // a subsumed clause contains all literals of e,
+        // so it is enough to look at the shortest occurrence list
+        List<Entry> candidates = null;
+        for (int lit : e.lits) {
+            List<Entry> es = containing(lit);
+            if (candidates == null || es.size() < candidates.size())
+                candidates = es;
+        }
+        List<Entry> subsumed = new ArrayList<Entry>();
+        if (candidates != null)
+            for (Entry other : candidates)
+                if (other != e && e.subsumes(other))
+                    subsumed.add(other);
+        return subsumed;
+    }
+}
@@ -65,7 +65,7 @@ class Literal {
 
     @Override
     public int hashCode() {
-        return toString().hashCode();
+        return name.hashCode() * 2 + (neg ? 1 : 0);
     }
 }
 
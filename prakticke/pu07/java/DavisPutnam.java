@@ -0,0 +1,204 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Davis–Putnam resolution (variable elimination).
+ *
+ * Instead of resolving pairs of clauses until saturation, one variable
+ * is eliminated at a time: all clauses containing it are replaced
+ * by all their (non-tautological) resolvents on it. The result is
+ * satisfiable iff the original clauses are. A variable that occurs
+ * only positively or only negatively has no resolvents, so its clauses
+ * are just removed (pure literals).
+ *
+ * The next variable is the one with the fewest resolvents, i.e.
+ * the smallest product of its positive and negative occurrences.
+ * New resolvents are subsumption checked (forward and backward)
+ * as in Saturation.
+ *
+ * The theory is unsatisfiable if the empty clause is derived and
+ * satisfiable if all clauses are eliminated.
+ *
+ * The number of kept clauses (and their literals) can be limited.
+ * Resolvents are kept as they are generated; if one exceeds a limit,
+ * the result is UNKNOWN (DP cannot drop clauses, satisfiability
+ * of the rest would say nothing about the theory).
+ *
+ * The clauses are simplified first (see Simplifier).
+ *
+ * No proof is recorded (see Saturation for refutations with a proof).
+ */
+class DavisPutnam {
+    private final SymbolTable symbols = new SymbolTable();
+    private final ClauseStore clauses = new ClauseStore();
+    private long maxClauses = Long.MAX_VALUE;
+    private long maxLiterals = Long.MAX_VALUE;
+    private boolean preprocess = true;
+    private long eliminated = 0;
+    private long generated = 0;
+    private long kept = 0;
+    private long deleted = 0;
+    private long forwardSubsumed = 0;
+    private long backwardSubsumed = 0;
+
+    /**
+     * @return the number of eliminated variables
+     */
+    public long eliminated() {
+        return eliminated;
+    }
+
+    /**
+     * @return the number of generated resolvents (including duplicates)
+     */
+    public long generated() {
+        return generated;
+    }
+
+    /**
+     * @return the number of kept clauses (inputs and resolvents that
+     *         were new and not subsumed)
+     */
+    public long kept() {
+        return kept;
+    }
+
+    /**
+     * @return the number of clauses deleted with eliminated variables
+     */
+    public long deleted() {
+        return deleted;
+    }
+
+    public long forwardSubsumed() {
+        return forwardSubsumed;
+    }
+
+    public long backwardSubsumed() {
+        return backwardSubsumed;
+    }
+
+    /**
+     * Simplify the clauses before resolution (see Simplifier);
+     * on by default.
+     */
+    public void setPreprocessing(boolean preprocess) {
+        this.preprocess = preprocess;
+    }
+
+    /**
+     * Limit the number of kept clauses and of their literals
+     * (Long.MAX_VALUE for no limit).
+     */
+    public void setLimits(long maxClauses, long maxLiterals) {
+        this.maxClauses = maxClauses;
+        this.maxLiterals = maxLiterals;
+    }
+
+    /**
+     * @throws IllegalStateException if a limit was exceeded
+     */
+    public boolean isSatisfiable(Cnf theory) {
+        Resolver.Status status = solve(theory);
+        if (status == Resolver.Status.UNKNOWN)
+            throw new IllegalStateException("resolution limits exceeded");
+        return status == Resolver.Status.SATISFIABLE;
+    }
+
+    public Resolver.Status solve(Cnf theory) {
+        List<int[]> initial = symbols.clauses(theory);
+        for (int[] c : initial)
+            if (c.length == 0)
+                return Resolver.Status.UNSATISFIABLE;
+        if (preprocess && !new Simplifier(symbols.vars()).simplify(initial))
+            return Resolver.Status.UNSATISFIABLE;
+        initial.sort(Comparator.comparingInt((int[] c) -> c.length));
+        for (int[] c : initial)
+            keep(c);
+        if (isOverLimits())
+            return Resolver.Status.UNKNOWN;
+
+        for (;;) {
+            int var = selectVar();
+            if (var < 0)
+                return Resolver.Status.SATISFIABLE; // no clauses left
+            ++eliminated;
+
+            List<ClauseStore.Entry> pos = new ArrayList<ClauseStore.Entry>(clauses.containing(2 * var));
+            List<ClauseStore.Entry> neg = new ArrayList<ClauseStore.Entry>(clauses.containing(2 * var + 1));
+            // clauses with an eliminated variable are never derived again
+            for (ClauseStore.Entry e : pos) {
+                clauses.delete(e);
+                clauses.forget(e);
+            }
+            for (ClauseStore.Entry e : neg) {
+                clauses.delete(e);
+                clauses.forget(e);
+            }
+            deleted += pos.size() + neg.size();
+            for (ClauseStore.Entry p : pos) {
+                for (ClauseStore.Entry n : neg) {
+                    int[] r = IntClause.resolve(p.lits, n.lits, 2 * var);
+                    ++generated;
+                    if (r == null)
+                        continue;
+                    if (r.length == 0)
+                        return Resolver.Status.UNSATISFIABLE;
+                    keep(r);
+                    if (isOverLimits())
+                        return Resolver.Status.UNKNOWN;
+                }
+            }
+        }
+    }
+
+    private boolean isOverLimits() {
+        return clauses.size() > maxClauses || clauses.literals() > maxLiterals;
+    }
+
+    /**
+     * @return the variable with the smallest product of occurrences
+     *         or -1 if there are no clauses
+     */
+    private int selectVar() {
+        int best = -1;
+        long bestProduct = Long.MAX_VALUE;
+        for (int var = 0; var < symbols.vars(); ++var) {
+            int pos = clauses.containing(2 * var).size();
+            int neg = clauses.containing(2 * var + 1).size();
+            if (pos + neg == 0)
+                continue;
+            long product = (long) pos * neg;
+            if (product < bestProduct) {
+                best = var;
+                bestProduct = product;
+                if (product == 0)
+                    break;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Activate `c` unless it is subsumed.
+     */
+    private void keep(int[] c) {
+        if (IntClause.isTautology(c))
+            return;
+        ClauseStore.Entry e = clauses.add(c);
+        if (e == null)
+            return;
+        if (clauses.subsumer(e) != null) {
+            clauses.delete(e);
+            ++forwardSubsumed;
+            return;
+        }
+        for (ClauseStore.Entry subsumed : clauses.subsumed(e)) {
+            clauses.delete(subsumed);
+            ++backwardSubsumed;
+        }
+        clauses.activate(e);
+        ++kept;
+    }
+}
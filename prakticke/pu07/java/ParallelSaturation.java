@@ -0,0 +1,276 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Level saturation with the resolvents of each round generated
+ * in parallel.
+ *
+ * A round resolves every clause that became active in the previous
+ * round (`fresh`) with all active clauses. Each pair is resolved once:
+ * a fresh clause is resolved only with clauses that have a smaller id
+ * (all older clauses and the fresh clauses added before it).
+ * The fresh clauses are split among the tasks of a fork/join
+ * (work-stealing) pool; the active clauses are only read during
+ * the round and new resolvents go to a concurrent set, which also
+ * removes duplicates.
+ *
+ * The resolvents are then merged sequentially, shortest first, with the
+ * same forward and backward subsumption as in Saturation, and the kept
+ * ones are the fresh clauses of the next round. The theory is
+ * satisfiable if a round keeps no new clause; it is unsatisfiable
+ * as soon as a task derives the empty clause (all tasks stop).
+ *
+ * The number of kept clauses (and their literals) can be limited.
+ * Like in DavisPutnam, clauses are not dropped (a level saturation
+ * without some of its clauses would say nothing about the theory):
+ * if the kept clauses exceed a limit after a round is merged, the result
+ * is UNKNOWN. The resolvents of one round are collected before they are
+ * merged, so they are not limited within the round.
+ *
+ * The clauses are simplified first (see Simplifier).
+ *
+ * No proof is recorded (see Saturation for refutations with a proof).
+ */
+class ParallelSaturation {
+    // a task resolves at most this many fresh clauses itself
+    private static final int THRESHOLD = 16;
+
+    private final ForkJoinPool pool;
+    private final SymbolTable symbols = new SymbolTable();
+    private final ClauseStore clauses = new ClauseStore();
+    private final LongAdder generated = new LongAdder();
+    private long rounds = 0;
+    private boolean preprocess = true;
+    private long maxClauses = Long.MAX_VALUE;
+    private long maxLiterals = Long.MAX_VALUE;
+    private long kept = 0;
+    private long forwardSubsumed = 0;
+    private long backwardSubsumed = 0;
+
+    public ParallelSaturation() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public ParallelSaturation(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * @return the number of rounds
+     */
+    public long rounds() {
+        return rounds;
+    }
+
+    /**
+     * @return the number of generated resolvents (including duplicates)
+     */
+    public long generated() {
+        return generated.sum();
+    }
+
+    /**
+     * @return the number of kept clauses (inputs and resolvents that
+     *         were new and not subsumed)
+     */
+    public long kept() {
+        return kept;
+    }
+
+    /**
+     * @return the number of clauses deleted because of the limits:
+     *         always 0, the result is UNKNOWN instead
+     */
+    public long deleted() {
+        return 0;
+    }
+
+    /**
+     * @return the number of new clauses dropped because an active clause
+     *         subsumes them
+     */
+    public long forwardSubsumed() {
+        return forwardSubsumed;
+    }
+
+    /**
+     * @return the number of active clauses deleted because a newer
+     *         clause subsumes them
+     */
+    public long backwardSubsumed() {
+        return backwardSubsumed;
+    }
+
+    /**
+     * Simplify the clauses before resolution (see Simplifier);
+     * on by default.
+     */
+    public void setPreprocessing(boolean preprocess) {
+        this.preprocess = preprocess;
+    }
+
+    /**
+     * Limit the number of kept clauses and of their literals
+     * (Long.MAX_VALUE for no limit).
+     */
+    public void setLimits(long maxClauses, long maxLiterals) {
+        this.maxClauses = maxClauses;
+        this.maxLiterals = maxLiterals;
+    }
+
+    public boolean isSatisfiable(Cnf theory) {
+        return isSatisfiable(new Cnf(), theory);
+    }
+
+    /**
+     * @param theory clauses that are not resolved with each other
+     * @param support the set of support
+     * @return true if the clauses of both are satisfiable together
+     * @throws IllegalStateException if a limit was exceeded
+     */
+    public boolean isSatisfiable(Cnf theory, Cnf support) {
+        Resolver.Status status = solve(theory, support);
+        if (status == Resolver.Status.UNKNOWN)
+            throw new IllegalStateException("resolution limits exceeded");
+        return status == Resolver.Status.SATISFIABLE;
+    }
+
+    public Resolver.Status solve(Cnf theory) {
+        return solve(new Cnf(), theory);
+    }
+
+    /**
+     * @param theory clauses that are not resolved with each other
+     * @param support the set of support
+     * @return UNKNOWN if the kept clauses exceeded a limit
+     *         before the result was known
+     */
+    public Resolver.Status solve(Cnf theory, Cnf support) {
+        List<int[]> theoryClauses = symbols.clauses(theory);
+        List<int[]> supportClauses = symbols.clauses(support);
+        if (theoryClauses.stream().anyMatch(c -> c.length == 0)
+                || supportClauses.stream().anyMatch(c -> c.length == 0))
+            return Resolver.Status.UNSATISFIABLE;
+        if (preprocess && !new Simplifier(symbols.vars()).simplify(theoryClauses, supportClauses))
+            return Resolver.Status.UNSATISFIABLE;
+        merge(theoryClauses);
+        List<ClauseStore.Entry> fresh = merge(supportClauses);
+        if (isOverLimits())
+            return Resolver.Status.UNKNOWN;
+
+        AtomicBoolean empty = new AtomicBoolean(false);
+        while (!fresh.isEmpty()) {
+            ++rounds;
+            Set<ClauseStore.Entry> resolvents = ConcurrentHashMap.newKeySet();
+            pool.invoke(new Round(fresh, 0, fresh.size(), resolvents, empty));
+            if (empty.get())
+                return Resolver.Status.UNSATISFIABLE;
+            List<int[]> lits = new ArrayList<int[]>(resolvents.size());
+            for (ClauseStore.Entry e : resolvents)
+                lits.add(e.lits);
+            fresh = merge(lits);
+            if (isOverLimits())
+                return Resolver.Status.UNKNOWN;
+        }
+        return Resolver.Status.SATISFIABLE;
+    }
+
+    private boolean isOverLimits() {
+        return clauses.size() > maxClauses || clauses.literals() > maxLiterals;
+    }
+
+    /**
+     * Keep and activate the new clauses that are not subsumed,
+     * shortest first.
+     *
+     * @return the kept clauses that are still active
+     */
+    private List<ClauseStore.Entry> merge(List<int[]> cs) {
+        cs.sort(Comparator.comparingInt((int[] c) -> c.length));
+        List<ClauseStore.Entry> added = new ArrayList<ClauseStore.Entry>();
+        for (int[] c : cs) {
+            if (IntClause.isTautology(c))
+                continue;
+            ClauseStore.Entry e = clauses.add(c);
+            if (e == null)
+                continue;
+            if (clauses.subsumer(e) != null) {
+                clauses.delete(e);
+                ++forwardSubsumed;
+                continue;
+            }
+            for (ClauseStore.Entry subsumed : clauses.subsumed(e)) {
+                clauses.delete(subsumed);
+                ++backwardSubsumed;
+            }
+            clauses.activate(e);
+            added.add(e);
+            ++kept;
+        }
+        added.removeIf(e -> e.deleted);
+        return added;
+    }
+
+    private class Round extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<ClauseStore.Entry> fresh;
+        private final int from;
+        private final int to;
+        private final Set<ClauseStore.Entry> resolvents;
+        private final AtomicBoolean empty;
+
+        Round(
+            List<ClauseStore.Entry> fresh,
+            int from,
+            int to,
+            Set<ClauseStore.Entry> resolvents,
+            AtomicBoolean empty
+        ) {
+            this.fresh = fresh;
+            this.from = from;
+            this.to = to;
+            this.resolvents = resolvents;
+            this.empty = empty;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > THRESHOLD) {
+                int mid = (from + to) >>> 1;
+                invokeAll(
+                    new Round(fresh, from, mid, resolvents, empty),
+                    new Round(fresh, mid, to, resolvents, empty)
+                );
+                return;
+            }
+            long n = 0;
+            for (int i = from; i < to && !empty.get(); ++i) {
+                ClauseStore.Entry e = fresh.get(i);
+                for (int lit : e.lits) {
+                    for (ClauseStore.Entry other : clauses.containing(lit ^ 1)) {
+                        if (other.id >= e.id)
+                            continue; // resolved by the other one
+                        int[] r = IntClause.resolve(e.lits, other.lits, lit);
+                        ++n;
+                        if (r == null)
+                            continue; // tautology
+                        if (r.length == 0) {
+                            empty.set(true);
+                            break;
+                        }
+                        resolvents.add(new ClauseStore.Entry(-1, r));
+                    }
+                }
+            }
+            generated.add(n);
+        }
+    }
+}
@@ -0,0 +1,408 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resolution proofs in a TraceCheck-like text format.
+ *
+ * Each line is a clause:
+ *
+ *   id lit_1 ... lit_n 0 antecedent_1 ... antecedent_k 0
+ *
+ * Ids are positive and a clause refers only to clauses on earlier lines.
+ * Literals are DIMACS style: variable v (see SymbolTable) is v + 1,
+ * its negation -(v + 1). An input clause has no antecedents; a derived
+ * clause is the result of resolving its antecedents one after another
+ * (each step on the only complementary pair). A refutation ends with
+ * the empty clause.
+ *
+ * Lines of the form
+ *
+ *   v var name
+ *
+ * give the names of the variables (var is the DIMACS variable, a name
+ * line comes before the first clause with the variable). With them,
+ * the input clauses can be checked against a theory by their content,
+ * independently of how the variables were numbered.
+ *
+ * The writer streams the trace: each clause is written when it is
+ * derived and the caller keeps only its id, so nothing is held in memory.
+ * The trace therefore also contains clauses that the refutation does
+ * not need; ResolutionProofTrimmer keeps only those it does.
+ *
+ * See ResolutionProofWriter, ResolutionProofTrimmer
+ * and ResolutionProofChecker.
+ */
+class ResolutionProofWriter {
+    private final Writer out;
+    private final StringBuilder line = new StringBuilder();
+    private int lastId = 0;
+    private SymbolTable symbols = null;
+    // the variables whose names were written
+    private final BitSet named = new BitSet();
+
+    /**
+     * @param out the trace is written to it line by line
+     *            (wrap it in a BufferedWriter if writes are expensive)
+     */
+    public ResolutionProofWriter(Writer out) {
+        this.out = out;
+    }
+
+    /**
+     * Write the names of the variables from `symbols` (the table
+     * the literals of the written clauses come from).
+     */
+    public void setSymbols(SymbolTable symbols) {
+        this.symbols = symbols;
+    }
+
+    /**
+     * Write an input clause.
+     *
+     * @return the id of the clause in the proof
+     */
+    public int input(int[] c) throws IOException {
+        return write(c);
+    }
+
+    /**
+     * Write the clause derived by resolving `antecedents` (proof ids)
+     * in this order.
+     *
+     * @return the id of the clause in the proof
+     */
+    public int derived(int[] c, int... antecedents) throws IOException {
+        return write(c, antecedents);
+    }
+
+    /**
+     * Write the empty clause derived from `antecedents` (an input if
+     * there are none), which ends the refutation.
+     */
+    public void refuted(int... antecedents) throws IOException {
+        write(new int[0], antecedents);
+        out.flush();
+    }
+
+    private int write(int[] c, int... antecedents) throws IOException {
+        int id = ++lastId;
+        line.setLength(0);
+        if (symbols != null) {
+            for (int lit : c) {
+                int var = lit >>> 1;
+                if (!named.get(var)) {
+                    named.set(var);
+                    line.append("v ").append(var + 1).append(' ')
+                        .append(symbols.name(var)).append('\n');
+                }
+            }
+        }
+        line.append(id);
+        for (int lit : c)
+            line.append(' ').append(dimacs(lit));
+        line.append(" 0");
+        for (int a : antecedents)
+            line.append(' ').append(a);
+        line.append(" 0\n");
+        out.write(line.toString());
+        return id;
+    }
+
+    static int dimacs(int lit) {
+        int v = (lit >>> 1) + 1;
+        return (lit & 1) == 0 ? v : -v;
+    }
+
+    static int lit(int dimacs) {
+        return dimacs > 0 ? 2 * (dimacs - 1) : 2 * (-dimacs - 1) + 1;
+    }
+}
+
+/**
+ * Trims a proof in the ResolutionProofWriter format to the clauses
+ * the (first) empty clause is derived from.
+ *
+ * The trace is read once, keeping the antecedent ids of each clause,
+ * and the needed clauses are then marked in a backward pass from the
+ * empty clause. They are written in the original order with their
+ * original ids, so the result is a valid proof if the input is.
+ * All variable names are kept.
+ */
+class ResolutionProofTrimmer {
+    /**
+     * @return the number of written clauses (0 if there is no empty clause)
+     */
+    public int trim(Reader in, Writer out) throws IOException {
+        List<String> lines = new ArrayList<String>();
+        List<int[]> antecedents = new ArrayList<int[]>();
+        Map<Integer, Integer> index = new HashMap<Integer, Integer>();
+        // the lines with variable names
+        BitSet names = new BitSet();
+        int empty = -1;
+
+        BufferedReader reader = new BufferedReader(in);
+        String line;
+        while (empty < 0 && (line = reader.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty())
+                continue;
+            if (line.startsWith("v ")) {
+                names.set(lines.size());
+                lines.add(line);
+                antecedents.add(new int[0]);
+                continue;
+            }
+            int[] ints;
+            try {
+                ints = Arrays.stream(line.split("\\s+")).mapToInt(Integer::parseInt).toArray();
+            } catch (NumberFormatException e) {
+                throw new IOException("not a clause: " + line);
+            }
+            int end = 1;
+            while (end < ints.length && ints[end] != 0)
+                ++end;
+            if (ints.length < end + 2)
+                throw new IOException("not a clause: " + line);
+            index.put(ints[0], lines.size());
+            if (end == 1)
+                empty = lines.size();
+            lines.add(line);
+            antecedents.add(Arrays.copyOfRange(ints, end + 1, ints.length - 1));
+        }
+        if (empty < 0)
+            return 0;
+
+        // antecedents are on earlier lines, so one backward pass marks all
+        boolean[] needed = new boolean[lines.size()];
+        needed[empty] = true;
+        for (int i = empty; i >= 0; --i) {
+            if (!needed[i])
+                continue;
+            for (int a : antecedents.get(i)) {
+                Integer k = index.get(a);
+                if (k == null || k >= i)
+                    throw new IOException("antecedent " + a + " is not defined before it is used");
+                needed[k] = true;
+            }
+        }
+
+        int n = 0;
+        for (int i = 0; i <= empty; ++i) {
+            if (needed[i] || names.get(i)) {
+                out.write(lines.get(i));
+                out.write('\n');
+                if (needed[i])
+                    ++n;
+            }
+        }
+        out.flush();
+        return n;
+    }
+}
+
+/**
+ * Checks a proof in the ResolutionProofWriter format in one pass,
+ * in time linear in its size (each resolution step marks the literals
+ * of the current resolvent in an array indexed by literal).
+ */
+class ResolutionProofChecker {
+    public static class Result {
+        /** true if all derived clauses follow from their antecedents */
+        public final boolean valid;
+        /** true if the proof is valid and derives the empty clause */
+        public final boolean refuted;
+        /** the first problem found (null if there is none) */
+        public final String error;
+        /** number of clauses */
+        public final int clauses;
+        /** number of input clauses */
+        public final int inputs;
+
+        Result(boolean valid, boolean refuted, String error, int clauses, int inputs) {
+            this.valid = valid;
+            this.refuted = refuted;
+            this.error = error;
+            this.clauses = clauses;
+            this.inputs = inputs;
+        }
+
+        @Override
+        public String toString() {
+            return (refuted ? "refuted" : valid ? "valid" : "invalid: " + error)
+                + " clauses: " + clauses
+                + " inputs: " + inputs
+            ;
+        }
+    }
+
+    private final Map<Integer, int[]> clauses = new HashMap<Integer, int[]>();
+    // variable names by DIMACS variable
+    private final Map<Integer, String> names = new HashMap<Integer, String>();
+    // mark[lit] == stamp iff lit is in the current resolvent
+    private int[] mark = new int[0];
+    private int stamp = 0;
+
+    public Result check(Reader in) throws IOException {
+        return check(in, null);
+    }
+
+    /**
+     * Check the proof in `in`. If `theory` is not null, input clauses
+     * must be its clauses: they are compared by the names of their
+     * variables, so every variable of an input needs a name line.
+     */
+    public Result check(Reader in, Cnf theory) throws IOException {
+        clauses.clear();
+        names.clear();
+
+        BufferedReader reader = new BufferedReader(in);
+        String error = null;
+        boolean refuted = false;
+        int n = 0, inputs = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty())
+                continue;
+            if (line.startsWith("v ")) {
+                if (error == null)
+                    error = name(line);
+                continue;
+            }
+            ++n;
+            if (error != null)
+                continue;
+            int[] ints;
+            try {
+                ints = Arrays.stream(line.split("\\s+")).mapToInt(Integer::parseInt).toArray();
+            } catch (NumberFormatException e) {
+                error = "line " + n + " is not a clause: " + line;
+                continue;
+            }
+            int id = ints.length > 0 ? ints[0] : 0;
+            int end = 1;
+            while (end < ints.length && ints[end] != 0)
+                ++end;
+            if (id <= 0 || ints.length < end + 2 || ints[ints.length - 1] != 0) {
+                error = "line " + n + " is not a clause: " + line;
+                continue;
+            }
+            if (clauses.containsKey(id)) {
+                error = "clause " + id + " is defined twice";
+                continue;
+            }
+            int[] c = new int[end - 1];
+            for (int i = 1; i < end; ++i)
+                c[i - 1] = ResolutionProofWriter.lit(ints[i]);
+            Arrays.sort(c);
+            int[] antecedents = Arrays.copyOfRange(ints, end + 1, ints.length - 1);
+
+            if (antecedents.length == 0) {
+                ++inputs;
+                if (theory != null)
+                    error = checkInput(id, c, theory);
+            } else {
+                error = checkDerived(id, c, antecedents);
+            }
+            if (error == null) {
+                clauses.put(id, c);
+                if (c.length == 0)
+                    refuted = true;
+            }
+        }
+        return new Result(error == null, error == null && refuted, error, n, inputs);
+    }
+
+    /**
+     * Record the variable name on a `v var name` line.
+     *
+     * @return an error or null
+     */
+    private String name(String line) {
+        String[] parts = line.split("\\s+");
+        int var;
+        try {
+            var = parts.length == 3 ? Integer.parseInt(parts[1]) : 0;
+        } catch (NumberFormatException e) {
+            var = 0;
+        }
+        if (var <= 0)
+            return "not a variable name: " + line;
+        String old = names.putIfAbsent(var, parts[2]);
+        if (old != null && !old.equals(parts[2]))
+            return "variable " + var + " is named twice";
+        return null;
+    }
+
+    /**
+     * @return an error or null if `c` is a clause of `theory`
+     */
+    private String checkInput(int id, int[] c, Cnf theory) {
+        Clause clause = new Clause();
+        for (int lit : c) {
+            String name = names.get((lit >>> 1) + 1);
+            if (name == null)
+                return "variable " + ((lit >>> 1) + 1) + " of clause " + id + " has no name";
+            clause.add(new Literal(name, (lit & 1) == 1));
+        }
+        if (!theory.contains(clause))
+            return "clause " + id + " is not an input clause";
+        return null;
+    }
+
+    /**
+     * @return an error or null if resolving `antecedents` in order gives `c`
+     */
+    private String checkDerived(int id, int[] c, int[] antecedents) {
+        ++stamp;
+        int size = 0;
+        for (int k = 0; k < antecedents.length; ++k) {
+            int[] a = clauses.get(antecedents[k]);
+            if (a == null)
+                return "antecedent " + antecedents[k] + " of clause " + id + " is not defined before it";
+            int pivot = -1;
+            for (int lit : a) {
+                grow(lit);
+                if (k > 0 && mark[lit ^ 1] == stamp) {
+                    if (pivot >= 0)
+                        return "clause " + id + ": antecedent " + antecedents[k]
+                            + " clashes in more than one literal";
+                    pivot = lit;
+                }
+            }
+            if (k > 0 && pivot < 0)
+                return "clause " + id + ": antecedent " + antecedents[k] + " cannot be resolved";
+            if (pivot >= 0) {
+                mark[pivot ^ 1] = 0;
+                --size;
+            }
+            for (int lit : a) {
+                if (lit != pivot && mark[lit] != stamp) {
+                    mark[lit] = stamp;
+                    ++size;
+                }
+            }
+        }
+        if (size != c.length)
+            return "clause " + id + " is not the resolvent of its antecedents";
+        for (int lit : c) {
+            grow(lit);
+            if (mark[lit] != stamp)
+                return "clause " + id + " is not the resolvent of its antecedents";
+        }
+        return null;
+    }
+
+    private void grow(int lit) {
+        if ((lit | 1) >= mark.length)
+            mark = Arrays.copyOf(mark, Math.max(2 * mark.length, (lit | 1) + 1));
+    }
+}
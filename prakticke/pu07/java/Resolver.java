@@ -1,13 +1,118 @@
+import java.io.Writer;
 import java.util.HashSet;
 import java.util.Set;
 
 public class Resolver {
+    public enum Status {
+        SATISFIABLE,
+        UNSATISFIABLE,
+        /** a resource limit was exceeded before the result was known */
+        UNKNOWN
+    }
+
+    /**
+     * @return all clauses that can be obtained by resolving `a` and `b`
+     *         (one resolvent for each literal of `a` complementary
+     *         to a literal of `b`)
+     */
     public static Set<Clause> resolve(Clause a, Clause b)
     {
-        return new HashSet<Clause>();
+        Set<Clause> resolvents = new HashSet<Clause>();
+        for (Literal l : a)
+            if (b.contains(l.not()))
+                resolvents.add(resolvent(a, b, l));
+        return resolvents;
     }
 
+    /**
+     * @return the resolvent of `a` and `b` on `l`
+     *         (`a` contains `l`, `b` contains `l.not()`)
+     */
+    static Clause resolvent(Clause a, Clause b, Literal l) {
+        Clause r = new Clause(a);
+        r.remove(l);
+        Literal nl = l.not();
+        for (Literal m : b)
+            if (!m.equals(nl))
+                r.add(m);
+        return r;
+    }
+
+    /**
+     * Decides satisfiability by given-clause saturation (see Saturation).
+     * There are no limits, so the result is exact (with limits,
+     * Saturation.isSatisfiable throws an IllegalStateException
+     * instead of returning UNKNOWN, see solve).
+     */
     public static boolean isSatisfiable(Cnf theory) {
-        return true;
+        return new Saturation().isSatisfiable(theory);
+    }
+
+    /**
+     * Like isSatisfiable(theory), but if the theory is unsatisfiable,
+     * its refutation is written to `proof` (see ResolutionProofWriter).
+     * The trace is streamed while the clauses are derived, so it also
+     * has clauses the refutation does not use (see ResolutionProofTrimmer).
+     */
+    public static boolean isSatisfiable(Cnf theory, Writer proof) {
+        Saturation s = new Saturation();
+        s.setProof(new ResolutionProofWriter(proof));
+        return s.isSatisfiable(theory);
+    }
+
+    /**
+     * Decides satisfiability by level saturation with the resolvents
+     * of each round generated in parallel (see ParallelSaturation).
+     * It does not write proofs; use isSatisfiable(theory, proof).
+     */
+    public static boolean isSatisfiableParallel(Cnf theory) {
+        return new ParallelSaturation().isSatisfiable(theory);
+    }
+
+    /**
+     * Like isSatisfiable(theory), but keeps at most `maxClauses` clauses
+     * with at most `maxLiterals` literals in total (see Saturation).
+     */
+    public static Status solve(Cnf theory, long maxClauses, long maxLiterals) {
+        Saturation s = new Saturation();
+        s.setLimits(maxClauses, maxLiterals);
+        return s.solve(theory);
+    }
+
+    /**
+     * Like isSatisfiableParallel(theory), but with limits
+     * (see ParallelSaturation).
+     */
+    public static Status solveParallel(Cnf theory, long maxClauses, long maxLiterals) {
+        ParallelSaturation s = new ParallelSaturation();
+        s.setLimits(maxClauses, maxLiterals);
+        return s.solve(theory);
+    }
+
+    /**
+     * Like isSatisfiableDP(theory), but with limits as in solve.
+     */
+    public static Status solveDP(Cnf theory, long maxClauses, long maxLiterals) {
+        DavisPutnam dp = new DavisPutnam();
+        dp.setLimits(maxClauses, maxLiterals);
+        return dp.solve(theory);
+    }
+
+    /**
+     * Decides satisfiability by Davis–Putnam variable elimination
+     * (see DavisPutnam). It does not write proofs;
+     * use isSatisfiable(theory, proof).
+     */
+    public static boolean isSatisfiableDP(Cnf theory) {
+        return new DavisPutnam().isSatisfiable(theory);
+    }
+
+    /**
+     * Like isSatisfiable(theory + support), but only resolves
+     * with the set of `support` (see Saturation).
+     * The result is exact only if `theory` alone is satisfiable.
+     */
+    public static boolean isSatisfiable(Cnf theory, Cnf support) {
+        return new Saturation().isSatisfiable(theory, support);
     }
 }
@@ -1,3 +1,5 @@
+import java.io.StringReader;
+import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
@@ -79,6 +81,236 @@ class Tester {
 
             if (compare(isSat, expected, description))
                 System.err.println("PASSED in " + (duration / 1000.0) + "ms");
+
+            start = System.nanoTime();
+            isSat = Resolver.isSatisfiableParallel(theory);
+            duration = (System.nanoTime() - start) / 1000;
+            if (compare(isSat, expected, description + " (parallel)"))
+                System.err.println("PASSED (parallel) in " + (duration / 1000.0) + "ms");
+
+            start = System.nanoTime();
+            isSat = Resolver.isSatisfiableDP(theory);
+            duration = (System.nanoTime() - start) / 1000;
+            if (compare(isSat, expected, description + " (DP)"))
+                System.err.println("PASSED (DP) in " + (duration / 1000.0) + "ms");
+
+            StringWriter proof = new StringWriter();
+            isSat = Resolver.isSatisfiable(theory, proof);
+            if (!isSat) {
+                ResolutionProofChecker.Result r = new ResolutionProofChecker()
+                    .check(new StringReader(proof.toString()), theory);
+                if (compare(r.refuted, true, description + " (proof: " + r + ")"))
+                    System.err.println("PASSED (proof) " + r);
+
+                // the inputs are matched by the names of their variables,
+                // so the proof checks against an equal theory parsed again
+                StringWriter core = new StringWriter();
+                int n = new ResolutionProofTrimmer()
+                    .trim(new StringReader(proof.toString()), core);
+                ResolutionProofChecker.Result c = new ResolutionProofChecker()
+                    .check(new StringReader(core.toString()), Cnf.fromString(theory.toString()));
+                if (compare(c.refuted && c.clauses == n && n <= r.clauses, true,
+                        description + " (trimmed proof: " + c + ")"))
+                    System.err.println("PASSED (trimmed proof) " + c);
+            }
+        }
+        catch (Throwable e) {
+            fail("Exception: " + e.toString());
+            e.printStackTrace();
+        }
+    }
+
+    public void testIsSatisfiable(boolean expected, Cnf theory, Cnf support, String description)
+    {
+        startCase(description + " (set of support)");
+        try {
+            long start = System.nanoTime();
+            boolean isSat = Resolver.isSatisfiable(theory, support);
+            long duration = (System.nanoTime() - start) / 1000;
+            time += duration;
+
+            if (compare(isSat, expected, description))
+                System.err.println("PASSED in " + (duration / 1000.0) + "ms");
+        }
+        catch (Throwable e) {
+            fail("Exception: " + e.toString());
+            e.printStackTrace();
+        }
+    }
+
+    public void testProofChecker(boolean expected, String proof, String description)
+    {
+        testProofChecker(expected, proof, null, description);
+    }
+
+    public void testProofChecker(boolean expected, String proof, Cnf theory, String description)
+    {
+        startCase("proof checker: " + description);
+        try {
+            ResolutionProofChecker.Result r = new ResolutionProofChecker()
+                .check(new StringReader(proof), theory);
+            compare(r.refuted, expected, description + " (" + r + ")");
+        }
+        catch (Throwable e) {
+            fail("Exception: " + e.toString());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * With limits, all engines must return `expected`.
+     */
+    public void testSolve(Resolver.Status expected, Cnf theory,
+            long maxClauses, long maxLiterals, String description)
+    {
+        startCase(description + " (limits " + maxClauses + " clauses, " + maxLiterals + " literals)");
+        try {
+            Resolver.Status status = Resolver.solve(theory, maxClauses, maxLiterals);
+            if (compare(status, expected, description))
+                System.err.println("PASSED " + status);
+
+            status = Resolver.solveParallel(theory, maxClauses, maxLiterals);
+            if (compare(status, expected, description + " (parallel)"))
+                System.err.println("PASSED (parallel) " + status);
+
+            status = Resolver.solveDP(theory, maxClauses, maxLiterals);
+            if (compare(status, expected, description + " (DP)"))
+                System.err.println("PASSED (DP) " + status);
+        }
+        catch (Throwable e) {
+            fail("Exception: " + e.toString());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Given-clause saturation with limits; checks the result and
+     * all counters of the search.
+     */
+    public void testLimits(Resolver.Status expected, Cnf theory,
+            long maxClauses, long maxLiterals,
+            long given, long generated, long kept, long deleted,
+            long forward, long backward, String description)
+    {
+        startCase("limits: " + description + " (" + maxClauses + " clauses, " + maxLiterals + " literals)");
+        try {
+            Saturation s = new Saturation();
+            s.setLimits(maxClauses, maxLiterals);
+            compare(s.solve(theory), expected, description);
+            compare(s.given(), given, description + " given");
+            compare(s.generated(), generated, description + " generated");
+            compare(s.kept(), kept, description + " kept");
+            compare(s.deleted(), deleted, description + " deleted");
+            compare(s.forwardSubsumed(), forward, description + " forward subsumed");
+            compare(s.backwardSubsumed(), backward, description + " backward subsumed");
+        }
+        catch (Throwable e) {
+            fail("Exception: " + e.toString());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Literals as in SymbolTable: variable v is 2 * v, its negation 2 * v + 1.
+     */
+    public void testIntResolve(int[] a, int[] b, int lit, int[] expected, String description)
+    {
+        startCase("IntClause.resolve: " + description);
+        try {
+            compare(Arrays.toString(IntClause.resolve(a, b, lit)),
+                Arrays.toString(expected), description);
+        }
+        catch (Throwable e) {
+            fail("Exception: " + e.toString());
+            e.printStackTrace();
+        }
+    }
+
+    public void testSubset(int[] a, int[] b, boolean expected, String description)
+    {
+        startCase("IntClause.subset: " + description);
+        try {
+            compare(IntClause.subset(a, b), expected, description);
+            if (expected)
+                compare(IntClause.signature(a) & ~IntClause.signature(b), 0L,
+                    description + " (signature of a subset)");
+            compare(new ClauseStore.Entry(0, a).subsumes(new ClauseStore.Entry(1, b)),
+                expected, description + " (subsumes)");
+        }
+        catch (Throwable e) {
+            fail("Exception: " + e.toString());
+            e.printStackTrace();
+        }
+    }
+
+    public void testSimplify(Cnf theory, Cnf support, boolean expected,
+            Cnf expTheory, Cnf expSupport,
+            long units, long pure, long satisfied, long stripped, String description)
+    {
+        startCase("simplify: " + description);
+        try {
+            SymbolTable symbols = new SymbolTable();
+            List<int[]> ts = symbols.clauses(theory);
+            List<int[]> ss = symbols.clauses(support);
+            Simplifier s = new Simplifier(symbols.vars());
+            compare(s.simplify(ts, ss), expected, description);
+            if (expected) {
+                compare(symbols.cnf(ts), expTheory, description + " theory");
+                compare(symbols.cnf(ss), expSupport, description + " support");
+            }
+            compare(s.units(), units, description + " units");
+            compare(s.pure(), pure, description + " pure");
+            compare(s.satisfied(), satisfied, description + " satisfied");
+            compare(s.stripped(), stripped, description + " stripped");
+        }
+        catch (Throwable e) {
+            fail("Exception: " + e.toString());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Saturate without preprocessing (so all clauses get to resolution)
+     * and check the subsumption counters.
+     */
+    public void testSubsumption(boolean expected, Cnf theory, Cnf support,
+            long forward, long backward, String description)
+    {
+        startCase("subsumption: " + description);
+        try {
+            Saturation s = new Saturation();
+            s.setPreprocessing(false);
+            boolean isSat = s.isSatisfiable(theory, support);
+            compare(isSat, expected, description);
+            compare(s.forwardSubsumed(), forward, description + " forward subsumed");
+            compare(s.backwardSubsumed(), backward, description + " backward subsumed");
+        }
+        catch (Throwable e) {
+            fail("Exception: " + e.toString());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Level saturation without preprocessing; the number of generated
+     * resolvents depends on the order of the tasks, so it is only
+     * checked to be at least `minGenerated`.
+     */
+    public void testParallelSaturation(boolean expected, Cnf support, long rounds,
+            long minGenerated, long kept, long forward, long backward, String description)
+    {
+        startCase("parallel saturation: " + description);
+        try {
+            ParallelSaturation s = new ParallelSaturation();
+            s.setPreprocessing(false);
+            compare(s.isSatisfiable(support), expected, description);
+            compare(s.rounds(), rounds, description + " rounds");
+            compare(s.generated() >= minGenerated, true,
+                description + " generated " + s.generated() + " >= " + minGenerated);
+            compare(s.kept(), kept, description + " kept");
+            compare(s.deleted(), 0L, description + " deleted");
+            compare(s.forwardSubsumed(), forward, description + " forward subsumed");
+            compare(s.backwardSubsumed(), backward, description + " backward subsumed");
         }
         catch (Throwable e) {
             fail("Exception: " + e.toString());
@@ -176,6 +408,32 @@ public class ResolverTest {
             "¬kim ∨ ¬sarah; ¬jim ∨ kim; ¬sarah ∨ jim; kim ∨ jim ∨ sarah; jim"
         ), "kim jim sara |≠ ¬jim");
 
+        Cnf kjs = T("¬kim ∨ ¬sarah; ¬jim ∨ kim; ¬sarah ∨ jim; kim ∨ jim ∨ sarah");
+        t.testIsSatisfiable(false, kjs, T("¬kim"), "kim jim sara |= kim");
+        t.testIsSatisfiable(false, kjs, T("sarah"), "kim jim sara |= ¬sarah");
+        t.testIsSatisfiable(true, kjs, T("¬jim"), "kim jim sara |≠ jim");
+
+        t.testProofChecker(true, "1 1 0 0\n2 -1 2 0 0\n3 -2 0 0\n4 2 0 1 2 0\n5 0 4 3 0\n", "chain");
+        t.testProofChecker(false, "1 1 0 0\n2 -2 0 0\n3 0 1 2 0\n", "no clash");
+        t.testProofChecker(false, "1 1 2 0 0\n2 -1 -2 0 0\n3 0 1 2 0\n", "two clashes");
+        t.testProofChecker(false, "1 1 0 0\n2 -1 2 0 0\n3 0 1 2 0\n", "wrong resolvent");
+        t.testProofChecker(false, "1 1 0 0\n2 0 1 3 0\n", "undefined antecedent");
+        // variables numbered differently than a SymbolTable would
+        t.testProofChecker(true, "v 1 p\nv 2 q\n1 2 0 0\n2 -2 1 0 0\n3 -1 0 0\n4 1 0 1 2 0\n5 0 4 3 0\n",
+            T("q; -q p; -p"), "inputs by name");
+        t.testProofChecker(false, "v 1 p\n1 -1 0 0\n2 1 0 0\n3 0 1 2 0\n",
+            T("p; -p q"), "not an input");
+        t.testProofChecker(false, "1 1 0 0\n2 -1 0 0\n3 0 1 2 0\n",
+            T("p; -p"), "input without names");
+        t.testProofChecker(false, "v 1 p\nv 1 q\n1 1 0 0\n2 -1 0 0\n3 0 1 2 0\n",
+            "variable named twice");
+
+        // decided (mostly) by unit propagation and pure literals
+        t.testIsSatisfiable(false, T("p; -p q; -q r; -r s; -s"));
+        t.testIsSatisfiable(true, T("p; -p q; -q r s; -r; x y; -x y"));
+        t.testIsSatisfiable(true, T("p q; -p q; p -q; x y z; -x -y; -z"));
+        t.testIsSatisfiable(false, T("p q; -p q; p -q; -p -q; x; -x y"));
+
         t.testIsSatisfiable(true, trueChain(4), "SAT chain 4");
         t.testIsSatisfiable(false, falseChain(4), "UNSAT chain 4");
         t.testIsSatisfiable(true, trueChain(20), "SAT chain 20");
@@ -190,6 +448,90 @@ public class ResolverTest {
             C(-9,-1), C(-3,-5), C(-6,-2), C(-6,-8), C(-9,-5)
             ), "q3");
 
+        t.testIntResolve(new int[]{ 0 }, new int[]{ 1 }, 0, new int[]{}, "complementary pair");
+        t.testIntResolve(new int[]{ 0, 2 }, new int[]{ 1, 3 }, 0, null, "tautological resolvent");
+        t.testIntResolve(new int[]{ 0, 2, 4 }, new int[]{ 1, 2, 6 }, 0, new int[]{ 2, 4, 6 },
+            "duplicate literal merged");
+        t.testIntResolve(new int[]{ 1, 2, 7 }, new int[]{ 0, 2, 3 }, 1, null,
+            "tautology on a shared variable");
+        t.testIntResolve(new int[]{ 2, 4, 9 }, new int[]{ 0, 5, 7 }, 4, new int[]{ 0, 2, 7, 9 },
+            "pivot in the middle");
+
+        // two literals in the same signature bit
+        int same = 1;
+        while (IntClause.signature(new int[]{ same }) != IntClause.signature(new int[]{ 0 }))
+            ++same;
+        t.testSubset(new int[]{ 2, 4 }, new int[]{ 0, 2, 4 }, true, "subset");
+        t.testSubset(new int[]{ 2, 5 }, new int[]{ 0, 2, 4 }, false, "not a subset");
+        t.testSubset(new int[]{ 0, 2, 4 }, new int[]{ 2, 4 }, false, "longer");
+        t.testSubset(new int[]{}, new int[]{ 2 }, true, "empty clause");
+        t.testSubset(new int[]{ 0 }, new int[]{ same }, false,
+            "equal signatures, not a subset");
+        t.testSubset(new int[]{ 0, same }, new int[]{ same }, false,
+            "equal signatures, longer");
+        t.testSubset(new int[]{ same }, new int[]{ 0, same }, true,
+            "equal signatures, subset");
+
+        // p makes -p q r shorter, so it moves to the support
+        t.testSimplify(T("p; -p q r; -q -r"), T("q -r"), true,
+            T("-q -r"), T("q r; q -r"), 1, 0, 1, 1, "theory clause moves to support");
+        // units p, q; then r or s is pure (the clause is removed
+        // as satisfied, not shortened)
+        t.testSimplify(T(), T("p; -p q; -q r s"), true,
+            T(), T(), 2, 1, 3, 0, "units and a pure literal");
+        // p is pure, then -q or r
+        t.testSimplify(T(), T("p q; p -q; -q r"), true,
+            T(), T(), 0, 2, 3, 0, "pure literals");
+        t.testSimplify(T("p; -p q"), T("-q"), false,
+            null, null, 2, 0, 0, 0, "conflict");
+
+        // p q is given before p q r, which is then dropped
+        t.testSubsumption(true, T(), T("p q r; p q"), 1, 0, "forward");
+        // p q r is active when p q (its resolvent with -r) is given
+        t.testSubsumption(true, T(), T("p q r; -r"), 0, 1, "backward");
+        // q (from p and -p q) deletes -p q, p drops p q
+        t.testSubsumption(true, T(), T("p; -p q; p q"), 1, 1, "forward and backward");
+        // theory clauses are active from the start
+        t.testSubsumption(true, T("p; p q"), T("q r"), 1, 0, "theory");
+        // p deletes p q and p -q, q (from p and -p q) deletes -p q
+        t.testSubsumption(false, T(), T("p q; p -q; -p q; -p -q"), 0, 3, "unsat");
+
+        // round 1: 8 resolvents (4 tautologies) give p, q, -p, -q, which
+        // delete the 4 inputs; round 2 resolves at least one pair of them
+        t.testParallelSaturation(false, T("p q; p -q; -p q; -p -q"), 2, 9, 8, 0, 4, "unsat");
+        // round 1: q deletes p q and -p q, round 2 keeps nothing
+        t.testParallelSaturation(true, T("p q; -p q"), 2, 1, 3, 0, 2, "sat");
+
+        Resolver.Status SAT = Resolver.Status.SATISFIABLE;
+        Resolver.Status UNSAT = Resolver.Status.UNSATISFIABLE;
+        Resolver.Status UNKNOWN = Resolver.Status.UNKNOWN;
+        t.testSolve(SAT, trueChain(20), 1000, 1000, "SAT chain 20");
+        t.testSolve(UNSAT, falseChain(20), 1000, 1000, "UNSAT chain 20");
+        // 21 binary clauses are left after preprocessing (no units,
+        // one pure literal): they do not fit, so a clause of a
+        // satisfiable theory is deleted (or DP gives up)
+        t.testSolve(UNKNOWN, trueChain(20), 10, 1000, "SAT chain 20");
+        t.testSolve(UNKNOWN, trueChain(20), 1000, 30, "SAT chain 20");
+        // no clause with a literal can be kept and preprocessing
+        // cannot refute a theory without units
+        t.testSolve(UNKNOWN, falseChain(20), 1000, 0, "UNSAT chain 20");
+        // refuted by unit propagation alone, whatever the limits
+        t.testSolve(UNSAT, T("p q r s t u v; -p; -q; -r; -s; -t; -u; -v"), 5, 100, "units");
+        t.testSolve(UNSAT, T("p q r s t u v; -p; -q; -r; -s; -t; -u; -v"), 0, 0, "units");
+
+        // the UNSAT chain keeps 53 clauses, but never more than 40 are
+        // left when the limits are checked (subsumed ones are deleted)
+        t.testLimits(UNSAT, falseChain(20), 40, Long.MAX_VALUE, 41, 33, 53, 0, 0, 20,
+            "UNSAT chain 20");
+        // with room for 30, reduce() deletes 8 long clauses, but not
+        // those of the refutation: the same search still finds it
+        t.testLimits(UNSAT, falseChain(20), 30, Long.MAX_VALUE, 41, 33, 53, 8, 0, 20,
+            "UNSAT chain 20");
+        // with room for 25, the search runs out of passive clauses
+        // after the deletions (5 resolvents are now subsumed instead)
+        t.testLimits(UNKNOWN, falseChain(20), 25, Long.MAX_VALUE, 39, 30, 51, 7, 5, 20,
+            "UNSAT chain 20");
+
     System.exit(t.status() ? 0 : 1);
     }
 }
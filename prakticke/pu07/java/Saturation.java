@@ -0,0 +1,380 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Given-clause saturation (as in Otter / DISCOUNT).
+ *
+ * Clauses are kept in two sets:
+ *  - active clauses were already resolved with each other
+ *    (they are indexed by their literals in a ClauseStore),
+ *  - passive clauses wait to be selected.
+ * In each step the lightest passive clause (the shortest one, the oldest
+ * of the shortest ones) is selected as the given clause, resolved with
+ * all active clauses and made active; new resolvents become passive.
+ * The theory is satisfiable if the passive set runs out without
+ * deriving the empty clause, which stops the search immediately.
+ *
+ * Short clauses are the most useful (the empty clause is derived
+ * from units), so this usually finds refutations much sooner than
+ * resolving the clauses in the order they were derived.
+ *
+ * Subsumed clauses are removed (DISCOUNT style, only active clauses
+ * subsume): a new resolvent subsumed by an active clause is dropped
+ * (forward subsumption, checked again when it is selected), and active
+ * clauses subsumed by the given clause are deleted (backward subsumption).
+ *
+ * The engine works with int literals and int[] clauses (see SymbolTable);
+ * Cnf and Clause are only converted at the start.
+ *
+ * With a set of support, the clauses of the theory start as active and
+ * only the support clauses (and everything derived from them) are given,
+ * so two theory clauses are never resolved with each other. This is
+ * complete if the theory itself is satisfiable (e.g. the support is
+ * a negated goal).
+ *
+ * With a proof writer, every kept clause is written to the proof when
+ * it is kept (with the ids of the two clauses it was resolved from) and
+ * only its proof id is remembered; the proof names the variables and
+ * ends with the empty clause (see ResolutionProofWriter, ResolutionProofTrimmer for the clauses
+ * the refutation needs). Without it, nothing is recorded.
+ *
+ * The number of kept clauses (and their literals) can be limited.
+ * When a limit is exceeded, the least valuable clauses are deleted
+ * until a quarter of the budget is free again: the longest ones and,
+ * among the longest kept length, those that took part in the fewest
+ * resolutions. Like the limited resource strategy of Vampire, clauses
+ * longer than the deleted ones are not kept from then on, so deleted
+ * clauses are not derived again and the search still terminates.
+ * Deleting clauses keeps refutations sound, but the search is no longer
+ * complete: running out of passive clauses then means UNKNOWN.
+ * The limits are checked after the inputs and after each given clause
+ * (not while the given clause is resolved, when the active clauses are
+ * being iterated), so all resolvents of one given clause are kept first
+ * and the budget can be exceeded by them for a moment.
+ *
+ * The clauses are simplified first (see Simplifier); the simplified
+ * theory clauses become support clauses. With a proof writer, the
+ * Simplifier writes its steps to the same proof.
+ */
+class Saturation {
+    private static class Passive implements Comparable<Passive> {
+        final ClauseStore.Entry entry;
+        final long age;
+
+        Passive(ClauseStore.Entry entry, long age) {
+            this.entry = entry;
+            this.age = age;
+        }
+
+        public int compareTo(Passive other) {
+            int size = entry.lits.length, otherSize = other.entry.lits.length;
+            if (size != otherSize)
+                return Integer.compare(size, otherSize);
+            return Long.compare(age, other.age);
+        }
+    }
+
+    private final SymbolTable symbols = new SymbolTable();
+    private final ClauseStore clauses = new ClauseStore();
+    private final PriorityQueue<Passive> passive = new PriorityQueue<Passive>();
+    private ResolutionProofWriter proof = null;
+    private boolean preprocess = true;
+    private long maxClauses = Long.MAX_VALUE;
+    private long maxLiterals = Long.MAX_VALUE;
+    // longer clauses are not kept (lowered when clauses are deleted)
+    private int maxLength = Integer.MAX_VALUE;
+    private long age = 0;
+    private long given = 0;
+    private long generated = 0;
+    private long kept = 0;
+    private long deleted = 0;
+    private long forwardSubsumed = 0;
+    private long backwardSubsumed = 0;
+
+    /**
+     * @return the number of given clauses
+     */
+    public long given() {
+        return given;
+    }
+
+    /**
+     * @return the number of generated resolvents (including duplicates)
+     */
+    public long generated() {
+        return generated;
+    }
+
+    /**
+     * @return the number of kept clauses (inputs and resolvents that
+     *         were new and not subsumed)
+     */
+    public long kept() {
+        return kept;
+    }
+
+    /**
+     * @return the number of clauses deleted or not kept because
+     *         of the limits
+     */
+    public long deleted() {
+        return deleted;
+    }
+
+    /**
+     * @return the number of new clauses dropped because an active clause
+     *         subsumes them
+     */
+    public long forwardSubsumed() {
+        return forwardSubsumed;
+    }
+
+    /**
+     * @return the number of active clauses deleted because a newer
+     *         clause subsumes them
+     */
+    public long backwardSubsumed() {
+        return backwardSubsumed;
+    }
+
+    /**
+     * Write the refutation to `proof` if the theory is unsatisfiable.
+     */
+    public void setProof(ResolutionProofWriter proof) {
+        this.proof = proof;
+        if (proof != null)
+            proof.setSymbols(symbols);
+    }
+
+    /**
+     * Simplify the clauses before resolution (see Simplifier);
+     * on by default.
+     */
+    public void setPreprocessing(boolean preprocess) {
+        this.preprocess = preprocess;
+    }
+
+    /**
+     * Limit the number of kept clauses and of their literals
+     * (Long.MAX_VALUE for no limit).
+     */
+    public void setLimits(long maxClauses, long maxLiterals) {
+        this.maxClauses = maxClauses;
+        this.maxLiterals = maxLiterals;
+    }
+
+    public boolean isSatisfiable(Cnf theory) {
+        return isSatisfiable(new Cnf(), theory);
+    }
+
+    /**
+     * @param theory clauses that are not resolved with each other
+     * @param support the set of support
+     * @return true if the clauses of both are satisfiable together
+     * @throws IllegalStateException if a limit was exceeded and
+     *         no refutation was found
+     */
+    public boolean isSatisfiable(Cnf theory, Cnf support) {
+        Resolver.Status status = solve(theory, support);
+        if (status == Resolver.Status.UNKNOWN)
+            throw new IllegalStateException("resolution limits exceeded");
+        return status == Resolver.Status.SATISFIABLE;
+    }
+
+    public Resolver.Status solve(Cnf theory) {
+        return solve(new Cnf(), theory);
+    }
+
+    /**
+     * @param theory clauses that are not resolved with each other
+     * @param support the set of support
+     * @return UNKNOWN if clauses were deleted because of the limits
+     *         and the theory was not refuted
+     */
+    public Resolver.Status solve(Cnf theory, Cnf support) {
+        List<int[]> theoryClauses = symbols.clauses(theory);
+        List<int[]> supportClauses = symbols.clauses(support);
+        Simplifier simplifier = null;
+        if (preprocess) {
+            simplifier = new Simplifier(symbols.vars());
+            simplifier.setProof(proof);
+            if (!simplifier.simplify(theoryClauses, supportClauses))
+                return Resolver.Status.UNSATISFIABLE; // the proof is written
+        }
+
+        for (int[] c : theoryClauses) {
+            if (c.length == 0)
+                return refuted();
+            ClauseStore.Entry e = keep(c);
+            if (e != null) {
+                recordInput(e, simplifier);
+                activate(e);
+            }
+        }
+        reduceIfOverLimits();
+        for (int[] c : supportClauses) {
+            if (c.length == 0)
+                return refuted();
+            ClauseStore.Entry e = addPassive(c);
+            if (e != null)
+                recordInput(e, simplifier);
+        }
+        reduceIfOverLimits();
+
+        while (!passive.isEmpty()) {
+            ClauseStore.Entry e = passive.poll().entry;
+            // it could be subsumed by clauses activated since it was added
+            if (e.deleted || isForwardSubsumed(e))
+                continue;
+            ++given;
+            int[] c = e.lits;
+            for (int lit : c) {
+                for (ClauseStore.Entry other : clauses.containing(lit ^ 1)) {
+                    int[] r = IntClause.resolve(c, other.lits, lit);
+                    ++generated;
+                    if (r == null)
+                        continue; // tautology
+                    if (r.length == 0)
+                        return refuted(e.proofId, other.proofId);
+                    ClauseStore.Entry added = addPassive(r);
+                    if (added != null) {
+                        ++e.uses;
+                        ++other.uses;
+                        if (proof != null)
+                            added.proofId = write(() -> proof.derived(r, e.proofId, other.proofId));
+                    }
+                }
+            }
+            activate(e);
+            reduceIfOverLimits();
+        }
+        return deleted == 0 ? Resolver.Status.SATISFIABLE : Resolver.Status.UNKNOWN;
+    }
+
+    /**
+     * @return the entry of `c` if it is a new clause (and not a tautology)
+     *         that is not subsumed by an active clause, null otherwise
+     */
+    private ClauseStore.Entry keep(int[] c) {
+        if (IntClause.isTautology(c))
+            return null;
+        if (c.length > maxLength) {
+            ++deleted;
+            return null;
+        }
+        ClauseStore.Entry e = clauses.add(c);
+        if (e == null || isForwardSubsumed(e))
+            return null;
+        ++kept;
+        return e;
+    }
+
+    private boolean isForwardSubsumed(ClauseStore.Entry e) {
+        if (clauses.subsumer(e) == null)
+            return false;
+        clauses.delete(e);
+        ++forwardSubsumed;
+        return true;
+    }
+
+    private void activate(ClauseStore.Entry e) {
+        for (ClauseStore.Entry subsumed : clauses.subsumed(e)) {
+            clauses.delete(subsumed);
+            ++backwardSubsumed;
+        }
+        clauses.activate(e);
+    }
+
+    private ClauseStore.Entry addPassive(int[] c) {
+        ClauseStore.Entry e = keep(c);
+        if (e != null)
+            passive.add(new Passive(e, age++));
+        return e;
+    }
+
+    private void reduceIfOverLimits() {
+        if (clauses.size() > maxClauses || clauses.literals() > maxLiterals)
+            reduce();
+    }
+
+    /**
+     * Delete the least valuable clauses, so that the kept ones use
+     * at most three quarters of the limits.
+     */
+    private void reduce() {
+        List<ClauseStore.Entry> live = clauses.activeEntries();
+        for (Passive p : passive)
+            if (!p.entry.deleted)
+                live.add(p.entry);
+        live.sort(Comparator
+            .comparingInt((ClauseStore.Entry e) -> e.lits.length)
+            .thenComparing(Comparator.comparingInt((ClauseStore.Entry e) -> e.uses).reversed())
+            .thenComparingLong(e -> e.id)
+        );
+
+        long clauseBudget = maxClauses - maxClauses / 4;
+        long literalBudget = maxLiterals - maxLiterals / 4;
+        int k = 0;
+        long literals = 0;
+        while (k < live.size() && k < clauseBudget
+                && literals + live.get(k).lits.length <= literalBudget)
+            literals += live.get(k++).lits.length;
+        if (k == live.size())
+            return;
+
+        int cut = live.get(k).lits.length;
+        boolean partial = k > 0 && live.get(k - 1).lits.length == cut;
+        maxLength = partial ? cut : cut - 1;
+        for (int i = k; i < live.size(); ++i) {
+            ClauseStore.Entry e = live.get(i);
+            clauses.delete(e);
+            ++deleted;
+            // longer clauses cannot be kept again, so they need not be
+            // remembered; deleted clauses of the maximal length must be
+            if (e.lits.length > maxLength)
+                clauses.forget(e);
+        }
+        passive.removeIf(p -> p.entry.deleted);
+    }
+
+    private interface ProofStep {
+        int write() throws IOException;
+    }
+
+    /**
+     * @return the proof id returned by `step`
+     */
+    private static int write(ProofStep step) {
+        try {
+            return step.write();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Give the kept input clause `e` its proof id: the one it got from
+     * the simplifier or a new input line.
+     */
+    private void recordInput(ClauseStore.Entry e, Simplifier simplifier) {
+        if (proof == null)
+            return;
+        int id = simplifier != null ? simplifier.proofId(e.lits) : 0;
+        e.proofId = id != 0 ? id : write(() -> proof.input(e.lits));
+    }
+
+    /**
+     * The empty clause was derived from the clauses with proof ids
+     * `antecedents` (or it is an input if there are none).
+     *
+     * @return UNSATISFIABLE
+     */
+    private Resolver.Status refuted(int... antecedents) {
+        if (proof != null)
+            write(() -> { proof.refuted(antecedents); return 0; });
+        return Resolver.Status.UNSATISFIABLE;
+    }
+}
@@ -0,0 +1,390 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cheap simplification of int[] clauses (see SymbolTable) before
+ * resolution:
+ *  - unit propagation to fixpoint,
+ *  - pure literal elimination (to fixpoint),
+ *  - removing satisfied clauses and false literals.
+ * The result is satisfiable iff the input is.
+ *
+ * Propagation counts the unassigned literals of each clause and looks
+ * at a clause only when a literal of it becomes false (through the
+ * occurrence lists), so everything is linear in the size of the input.
+ * Pure literals cannot make any literal false, so they are eliminated
+ * after propagation has finished.
+ *
+ * With a proof writer, shortened clauses (and the empty clause on
+ * a conflict) are written as resolution steps: a propagated literal
+ * gets a unit clause derived from the clause that implied it and the
+ * units of its other (false) literals, in the order of propagation,
+ * and a shortened clause is its original resolved with the units of
+ * its false literals. Removing clauses needs no proof steps.
+ */
+class Simplifier {
+    private final int vars;
+    private long units = 0;
+    private long pure = 0;
+    private long satisfied = 0;
+    private long stripped = 0;
+
+    // clauses (theory first, then support) and their state
+    private int[][] clauses;
+    private boolean[] isSatisfied;
+    private int[] free;
+    // occurrences[lit] = indices of clauses containing lit
+    private int[][] occurrences;
+    // isTrue[lit] iff lit is assigned true
+    private boolean[] isTrue;
+    private int[] queue;
+    private int queueEnd = 0;
+
+    private ResolutionProofWriter proof = null;
+    // reason[var] = index of the clause that implied var, position[var]
+    // = its index in the queue (only with a proof)
+    private int[] reason;
+    private int[] position;
+    // proof ids of the input clauses (by index) and of the derived units
+    // (by variable, those before derivedUnits in the queue); 0 if none
+    private int[] inputIds;
+    private int[] unitIds;
+    private int derivedUnits = 0;
+    private final Map<int[], Integer> proofIds = new IdentityHashMap<int[], Integer>();
+
+    /**
+     * @param vars the number of variables (literals are < 2 * vars)
+     */
+    public Simplifier(int vars) {
+        this.vars = vars;
+    }
+
+    /**
+     * @return the number of literals assigned by unit propagation
+     */
+    public long units() {
+        return units;
+    }
+
+    /**
+     * @return the number of eliminated pure literals
+     */
+    public long pure() {
+        return pure;
+    }
+
+    /**
+     * @return the number of removed satisfied clauses
+     */
+    public long satisfied() {
+        return satisfied;
+    }
+
+    /**
+     * @return the number of removed false literals
+     */
+    public long stripped() {
+        return stripped;
+    }
+
+    /**
+     * Write the steps of the simplification to `proof`.
+     */
+    public void setProof(ResolutionProofWriter proof) {
+        this.proof = proof;
+    }
+
+    /**
+     * @return the proof id of a clause returned by simplify, or 0 if it
+     *         was not written to the proof (an unchanged input)
+     */
+    public int proofId(int[] c) {
+        Integer id = proofIds.get(c);
+        return id == null ? 0 : id;
+    }
+
+    public boolean simplify(List<int[]> cs) {
+        return simplify(new ArrayList<int[]>(), cs);
+    }
+
+    /**
+     * Simplify `theory` and `support` (in place) together. Clauses of
+     * `theory` that lose a literal were derived with other clauses,
+     * so they are moved to `support` (the remaining theory clauses are
+     * a subset of the original theory, see Saturation).
+     *
+     * @return false if the clauses are unsatisfiable (propagation
+     *         derived the empty clause)
+     */
+    public boolean simplify(List<int[]> theory, List<int[]> support) {
+        int n = theory.size() + support.size();
+        clauses = new int[n][];
+        int i = 0;
+        for (int[] c : theory)
+            clauses[i++] = c;
+        for (int[] c : support)
+            clauses[i++] = c;
+        isSatisfied = new boolean[n];
+        free = new int[n];
+        isTrue = new boolean[2 * vars];
+        queue = new int[vars];
+        queueEnd = 0;
+        if (proof != null) {
+            reason = new int[vars];
+            position = new int[vars];
+            inputIds = new int[n];
+            unitIds = new int[vars];
+            derivedUnits = 0;
+            proofIds.clear();
+        }
+        index();
+
+        for (i = 0; i < n; ++i) {
+            int[] c = clauses[i];
+            if (c.length == 0 || c.length == 1 && !assign(c[0], i)) {
+                if (proof != null)
+                    refuted(i);
+                return false;
+            }
+        }
+        int conflict = propagate();
+        if (conflict >= 0) {
+            if (proof != null)
+                refuted(conflict);
+            return false;
+        }
+        eliminatePure();
+
+        int nTheory = theory.size();
+        theory.clear();
+        support.clear();
+        for (i = 0; i < n; ++i) {
+            if (isSatisfied[i]) {
+                ++satisfied;
+                continue;
+            }
+            int[] c = clauses[i];
+            int[] s = strip(c);
+            if (proof != null) {
+                if (s != c)
+                    proofIds.put(s, derive(s, i));
+                else if (inputIds[i] != 0)
+                    proofIds.put(c, inputIds[i]);
+            }
+            if (i < nTheory && s == c)
+                theory.add(c);
+            else
+                support.add(s);
+        }
+        return true;
+    }
+
+    private void index() {
+        int[] counts = new int[2 * vars];
+        for (int[] c : clauses)
+            for (int lit : c)
+                ++counts[lit];
+        occurrences = new int[2 * vars][];
+        for (int lit = 0; lit < 2 * vars; ++lit)
+            occurrences[lit] = new int[counts[lit]];
+        int[] next = new int[2 * vars];
+        for (int i = 0; i < clauses.length; ++i) {
+            free[i] = clauses[i].length;
+            for (int lit : clauses[i])
+                occurrences[lit][next[lit]++] = i;
+        }
+    }
+
+    /**
+     * Make `lit` true (and queue it for propagation); it is implied
+     * by the clause with index `reason`.
+     *
+     * @return false if its complement is already true
+     */
+    private boolean assign(int lit, int reason) {
+        if (isTrue[lit])
+            return true;
+        if (isTrue[lit ^ 1])
+            return false;
+        isTrue[lit] = true;
+        if (proof != null) {
+            this.reason[lit >>> 1] = reason;
+            position[lit >>> 1] = queueEnd;
+        }
+        queue[queueEnd++] = lit >>> 1;
+        ++units;
+        return true;
+    }
+
+    /**
+     * @return the index of a clause with all literals false
+     *         or -1 if there is no conflict
+     */
+    private int propagate() {
+        for (int head = 0; head < queueEnd; ++head) {
+            int var = queue[head];
+            int lit = isTrue[2 * var] ? 2 * var : 2 * var + 1;
+            for (int i : occurrences[lit])
+                isSatisfied[i] = true;
+            for (int i : occurrences[lit ^ 1]) {
+                if (isSatisfied[i] || --free[i] > 1)
+                    continue;
+                // the count may include literals that are assigned,
+                // but not propagated yet, so look at the clause
+                int unassigned = -1;
+                boolean found = false;
+                for (int x : clauses[i]) {
+                    if (isTrue[x]) {
+                        isSatisfied[i] = true;
+                        break;
+                    }
+                    if (!isTrue[x ^ 1]) {
+                        unassigned = x;
+                        found = true;
+                    }
+                }
+                if (isSatisfied[i])
+                    continue;
+                if (!found)
+                    return i;
+                // the count is an upper bound, so this is the only one
+                assign(unassigned, i);
+            }
+        }
+        return -1;
+    }
+
+    private void eliminatePure() {
+        int[] counts = new int[2 * vars];
+        for (int i = 0; i < clauses.length; ++i)
+            if (!isSatisfied[i])
+                for (int x : clauses[i])
+                    if (!isTrue[x] && !isTrue[x ^ 1])
+                        ++counts[x];
+
+        int[] candidates = new int[2 * vars];
+        int end = 0;
+        for (int lit = 0; lit < 2 * vars; ++lit)
+            if (counts[lit] > 0 && counts[lit ^ 1] == 0)
+                candidates[end++] = lit;
+        for (int k = 0; k < end; ++k) {
+            int lit = candidates[k];
+            if (isTrue[lit] || isTrue[lit ^ 1] || counts[lit] == 0)
+                continue;
+            isTrue[lit] = true;
+            ++pure;
+            for (int i : occurrences[lit]) {
+                if (isSatisfied[i])
+                    continue;
+                isSatisfied[i] = true;
+                for (int x : clauses[i]) {
+                    if (isTrue[x] || isTrue[x ^ 1])
+                        continue;
+                    // the complement of x may have become pure
+                    if (--counts[x] == 0 && counts[x ^ 1] > 0)
+                        candidates[end++] = x ^ 1;
+                }
+            }
+        }
+    }
+
+    /**
+     * Write the clause with index `i` as an input (once).
+     *
+     * @return its proof id
+     */
+    private int inputId(int i) throws IOException {
+        if (inputIds[i] == 0)
+            inputIds[i] = proof.input(clauses[i]);
+        return inputIds[i];
+    }
+
+    /**
+     * @return the proof id of the unit clause of the propagated
+     *         variable `var` (derived with all units before it)
+     */
+    private int unitId(int var) throws IOException {
+        for (; derivedUnits <= position[var]; ++derivedUnits) {
+            int v = queue[derivedUnits];
+            int r = reason[v];
+            int[] c = clauses[r];
+            int lit = isTrue[2 * v] ? 2 * v : 2 * v + 1;
+            if (c.length == 1) {
+                unitIds[v] = inputId(r);
+                continue;
+            }
+            // the other literals of the reason were false before
+            int[] antecedents = new int[c.length];
+            int k = 0;
+            antecedents[k++] = inputId(r);
+            for (int x : c)
+                if (x != lit)
+                    antecedents[k++] = unitIds[x >>> 1];
+            unitIds[v] = proof.derived(new int[]{ lit }, antecedents);
+        }
+        return unitIds[var];
+    }
+
+    /**
+     * @return the proof id of `s`, the clause with index `i`
+     *         without its false literals
+     */
+    private int derive(int[] s, int i) {
+        try {
+            int[] c = clauses[i];
+            int[] antecedents = new int[1 + c.length - s.length];
+            int k = 0;
+            antecedents[k++] = inputId(i);
+            for (int x : c)
+                if (isTrue[x ^ 1])
+                    antecedents[k++] = unitId(x >>> 1);
+            return proof.derived(s, antecedents);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Write the refutation: the clause with index `i` has all literals false.
+     */
+    private void refuted(int i) {
+        try {
+            int[] c = clauses[i];
+            if (c.length == 0) {
+                proof.refuted();
+                return;
+            }
+            int[] antecedents = new int[1 + c.length];
+            int k = 0;
+            antecedents[k++] = inputId(i);
+            for (int x : c)
+                antecedents[k++] = unitId(x >>> 1);
+            proof.refuted(antecedents);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return `c` without false literals (`c` itself if it has none)
+     */
+    private int[] strip(int[] c) {
+        int n = 0;
+        for (int x : c)
+            if (!isTrue[x ^ 1])
+                ++n;
+        if (n == c.length)
+            return c;
+        stripped += c.length - n;
+        int[] s = new int[n];
+        n = 0;
+        for (int x : c)
+            if (!isTrue[x ^ 1])
+                s[n++] = x;
+        return s;
+    }
+}
@@ -0,0 +1,169 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Interns variable names as ints, so that the resolution engine can
+ * work with int literals and int[] clauses instead of Literal and Clause.
+ *
+ * Variables are numbered from 0; the literal of variable v is 2*v,
+ * its negation 2*v + 1 (so `lit ^ 1` is the complementary literal).
+ * Clauses are sorted int[]s without duplicates (see IntClause), so a
+ * literal and its complement are next to each other.
+ */
+class SymbolTable {
+    private final Map<String, Integer> ids = new HashMap<String, Integer>();
+    private final List<String> names = new ArrayList<String>();
+
+    /**
+     * @return the number of variables
+     */
+    public int vars() {
+        return names.size();
+    }
+
+    /**
+     * @return the id of the variable `name` (a new one if it is new)
+     */
+    public int var(String name) {
+        Integer id = ids.get(name);
+        if (id == null) {
+            id = names.size();
+            ids.put(name, id);
+            names.add(name);
+        }
+        return id;
+    }
+
+    /**
+     * @return the name of the variable `var`
+     */
+    public String name(int var) {
+        return names.get(var);
+    }
+
+    public int lit(Literal l) {
+        return var(l.name()) * 2 + (l.neg() ? 1 : 0);
+    }
+
+    public Literal literal(int lit) {
+        return new Literal(name(lit >>> 1), (lit & 1) == 1);
+    }
+
+    /**
+     * @return `c` as a sorted int[] without duplicates
+     */
+    public int[] clause(Clause c) {
+        int[] lits = new int[c.size()];
+        int n = 0;
+        for (Literal l : c)
+            lits[n++] = lit(l);
+        Arrays.sort(lits);
+        return lits; // a Clause is a set, there are no duplicates
+    }
+
+    public Clause clause(int[] lits) {
+        Clause c = new Clause();
+        for (int lit : lits)
+            c.add(literal(lit));
+        return c;
+    }
+
+    public List<int[]> clauses(Cnf cnf) {
+        List<int[]> cs = new ArrayList<int[]>(cnf.size());
+        for (Clause c : cnf)
+            cs.add(clause(c));
+        return cs;
+    }
+
+    public Cnf cnf(Iterable<int[]> clauses) {
+        Cnf cnf = new Cnf();
+        for (int[] c : clauses)
+            cnf.add(clause(c));
+        return cnf;
+    }
+}
+
+/**
+ * Operations on clauses represented as sorted int[]s of literals
+ * (see SymbolTable). All of them are linear merges.
+ */
+final class IntClause {
+    private IntClause() {
+    }
+
+    /**
+     * @return the resolvent of `a` and `b` on `lit` (`a` contains `lit`,
+     *         `b` contains `lit ^ 1`) or null if it is a tautology
+     */
+    public static int[] resolve(int[] a, int[] b, int lit) {
+        int nlit = lit ^ 1;
+        int[] r = new int[a.length + b.length - 2];
+        int n = 0;
+        int i = 0, j = 0;
+        while (i < a.length || j < b.length) {
+            int x;
+            if (j >= b.length || (i < a.length && a[i] <= b[j])) {
+                x = a[i++];
+                if (j < b.length && b[j] == x)
+                    ++j;
+            } else {
+                x = b[j++];
+            }
+            if (x == lit || x == nlit)
+                continue;
+            // complementary literals are neighbours in a sorted clause
+            if (n > 0 && (r[n - 1] ^ 1) == x)
+                return null;
+            r[n++] = x;
+        }
+        return n == r.length ? r : Arrays.copyOf(r, n);
+    }
+
+    /**
+     * @return true if `c` contains a literal and its complement
+     */
+    public static boolean isTautology(int[] c) {
+        for (int i = 1; i < c.length; ++i)
+            if ((c[i - 1] ^ 1) == c[i])
+                return true;
+        return false;
+    }
+
+    /**
+     * @return true if all literals of `a` are in `b`
+     */
+    public static boolean subset(int[] a, int[] b) {
+        if (a.length > b.length)
+            return false;
+        int j = 0;
+        for (int x : a) {
+            while (j < b.length && b[j] < x)
+                ++j;
+            if (j == b.length || b[j] != x)
+                return false;
+            ++j;
+        }
+        return true;
+    }
+
+    /**
+     * @return true if `c` contains `lit`
+     */
+    public static boolean contains(int[] c, int lit) {
+        return Arrays.binarySearch(c, lit) >= 0;
+    }
+
+    /**
+     * @return a 64-bit signature: if `a` is a subset of `b`, the signature
+     *         of `a` is a subset of the signature of `b`
+     */
+    public static long signature(int[] c) {
+        long sig = 0;
+        for (int lit : c)
+            sig |= 1L << ((lit * 0x9E3779B9) >>> 26);
+        return sig;
+    }
+}
@@ -1,31 +1,150 @@
+import java.util.AbstractSet;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
-import java.util.Deque;
-import java.util.ArrayDeque;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
+/**
+ * The assignment of the variables of a theory.
+ *
+ * Variables have dense ids (0, 1, ...) and their values are kept
+ * in a byte[] indexed by the id (TRUE, FALSE or UNSET), so reading
+ * the value of a literal is a single array lookup without boxing.
+ *
+ * The trail is an int[] of the assigned literals (see Literal.index())
+ * in the order they were assigned. A decision level starts at a marked
+ * trail position; backtracking to a level unassigns everything after
+ * its end.
+ */
+final class Assignment {
+    static final byte UNSET = 0;
+    static final byte TRUE = 1;
+    static final byte FALSE = -1;
+
+    byte[] values = new byte[16];
+    private Variable[] variables = new Variable[16];
+    private int nVars = 0;
+    private int[] trail = new int[16];
+    private int trailSize = 0;
+    // levelStarts[k] = the trail position where level k + 1 starts
+    private int[] levelStarts = new int[16];
+    private int level = 0;
+
+    /**
+     * Create a new variable with the next id.
+     */
+    Variable newVariable(String name) {
+        if (nVars == variables.length) {
+            variables = Arrays.copyOf(variables, 2 * nVars);
+            values = Arrays.copyOf(values, 2 * nVars);
+            trail = Arrays.copyOf(trail, 2 * nVars);
+        }
+        Variable v = new Variable(this, nVars, name);
+        variables[nVars++] = v;
+        return v;
+    }
+
+    /**
+     * @return the number of variables
+     */
+    public int nVars() {
+        return nVars;
+    }
+
+    public Variable variable(int id) {
+        return variables[id];
+    }
+
+    /**
+     * @return the number of assigned literals
+     */
+    public int nAssigned() {
+        return trailSize;
+    }
+
+    /**
+     * @return the current decision level (0 before the first decision)
+     */
+    public int level() {
+        return level;
+    }
+
+    /**
+     * Make `lit` true and append it to the trail.
+     * The variable must be unset.
+     */
+    void assign(Literal lit) {
+        values[lit.var()] = lit.value();
+        trail[trailSize++] = lit.index();
+    }
+
+    /**
+     * Unassign the last assigned literal.
+     */
+    void unassignLast() {
+        values[trail[--trailSize] >>> 1] = UNSET;
+        while (level > 0 && levelStarts[level - 1] >= trailSize)
+            --level;
+    }
+
+    /**
+     * Start a new decision level at the end of the trail.
+     */
+    void newLevel() {
+        if (level == levelStarts.length)
+            levelStarts = Arrays.copyOf(levelStarts, 2 * level);
+        levelStarts[level++] = trailSize;
+    }
+
+    /**
+     * Unassign all literals assigned after decision level `target`.
+     */
+    void backtrack(int target) {
+        if (target >= level)
+            return;
+        int end = levelStarts[target];
+        while (trailSize > end)
+            values[trail[--trailSize] >>> 1] = UNSET;
+        level = target;
+    }
+}
+
 class Variable {
+    private final Assignment assignment;
+    private final int id;
     private final String name;
     private final Literal tLit, fLit;
-    private Boolean val; // this is tri-state: null == unset
 
     /**
      * Create a new variable with the two corresponding literals.
+     * Should be called only from Assignment.newVariable!
      *
      * @param name name of the variable
      */
-    private Variable(String name) {
+    Variable(Assignment assignment, int id, String name) {
+        this.assignment = assignment;
+        this.id = id;
         this.name = name;
         tLit = new Literal(this, true);
         fLit = new Literal(this, false);
-        val = null;
+    }
+
+    Assignment assignment() {
+        return assignment;
+    }
+
+    /**
+     * @return the id of the variable in its Assignment
+     */
+    public int id() {
+        return id;
     }
 
     /**
@@ -48,21 +167,21 @@ class Variable {
      * Use `setTrue` on the corresponding literal!
      */
     void set(boolean val) {
-        this.val = val;
+        assignment.values[id] = val ? Assignment.TRUE : Assignment.FALSE;
     }
 
     /**
      * Unset the variable
      */
     void unset() {
-        val = null;
+        assignment.values[id] = Assignment.UNSET;
     }
 
     /**
      * @return true if the variable is assigned a value
      */
     public boolean isSet() {
-        return val != null;
+        return assignment.values[id] != Assignment.UNSET;
     }
 
     /**
@@ -71,19 +190,25 @@ class Variable {
      * @return null if the variable is unset, true/false otherwise
      */
     public Boolean val() {
-        return val;
+        byte value = assignment.values[id];
+        return value == Assignment.UNSET ? null : value == Assignment.TRUE;
     }
 
     @Override
     public String toString() {
-        return "Var<" + name() +":" + (isSet() ? val.toString() : "unset") + ">";
+        return "Var<" + name() +":" + (isSet() ? val().toString() : "unset") + ">";
     }
 
-    public static Variable fromString(String name, Map<String,Variable> vars) {
-        if (vars.containsKey(name))
-            return vars.get(name);
-        Variable v = new Variable(name);
-        vars.put(name, v);
+    /**
+     * @return the variable called `name` in `vars`,
+     *         a new variable of `assignment` if there is none
+     */
+    public static Variable fromString(String name, Map<String,Variable> vars, Assignment assignment) {
+        Variable v = vars.get(name);
+        if (v == null) {
+            v = assignment.newVariable(name);
+            vars.put(name, v);
+        }
         return v;
     }
 
@@ -104,7 +229,12 @@ class Variable {
 class Literal {
     private final Variable variable;
     private final boolean sign;
-    private final Set<Clause> watchedIn = new HashSet<Clause>();
+    // copied from the variable, so that the value is one lookup away
+    private final Assignment assignment;
+    private final int var;
+    private final byte value;
+    private final int hash;
+    private final WatchList watches = new WatchList();
 
     /**
      * Create a new literal.
@@ -113,6 +243,31 @@ class Literal {
     Literal(Variable variable, boolean sign) {
         this.variable = variable;
         this.sign = sign;
+        this.assignment = variable.assignment();
+        this.var = variable.id();
+        this.value = sign ? Assignment.TRUE : Assignment.FALSE;
+        this.hash = variable.name().hashCode() * 2 + (sign ? 0 : 1);
+    }
+
+    /**
+     * @return the id of the variable
+     */
+    int var() {
+        return var;
+    }
+
+    /**
+     * @return 2 * var() for a positive literal, 2 * var() + 1 for a negative one
+     */
+    int index() {
+        return 2 * var + (sign ? 0 : 1);
+    }
+
+    /**
+     * @return the value of the variable that makes this literal true
+     */
+    byte value() {
+        return value;
     }
     public Variable variable() {
         return variable;
@@ -136,6 +291,19 @@ class Literal {
         return toString() + w;
     }
 
+    public static Literal fromString(String s, Map<String,Variable> vars, Assignment assignment) {
+        s = s.trim();
+        boolean sign = true;
+        if (s.charAt(0) == '-' || s.charAt(0) == '¬') {
+            s = s.substring(1);
+            sign = false;
+        }
+        return Variable.fromString(s, vars, assignment).lit(sign);
+    }
+
+    /**
+     * Parse a literal of an existing variable in `vars`.
+     */
     public static Literal fromString(String s, Map<String,Variable> vars) {
         s = s.trim();
         boolean sign = true;
@@ -143,7 +311,10 @@ class Literal {
             s = s.substring(1);
             sign = false;
         }
-        return Variable.fromString(s, vars).lit(sign);
+        Variable v = vars.get(s);
+        if (v == null)
+            throw new IllegalArgumentException("Unknown variable " + s);
+        return v.lit(sign);
     }
 
     @Override
@@ -156,7 +327,7 @@ class Literal {
 
     @Override
     public int hashCode() {
-        return toString().hashCode();
+        return hash;
     }
 
     /**
@@ -164,35 +335,35 @@ class Literal {
      * I.e. if this is a negative literal, the variable becomes false.
      */
     void setTrue() {
-        variable.set(sign);
+        assignment.values[var] = value;
     }
 
     /**
      * Unset the literal / variable.
      */
     void unset() {
-        variable.unset();
+        assignment.values[var] = Assignment.UNSET;
     }
 
     /**
      * @return true if the literal / variable is assigned a value
      */
     boolean isSet() {
-        return variable.isSet();
+        return assignment.values[var] != Assignment.UNSET;
     }
 
     /**
      * @return true if the variable is assigned a value that makes the literal true
      */
     boolean isTrue() {
-        return variable.isSet() && sign == variable.val();
+        return assignment.values[var] == value;
     }
 
     /**
      * @return true if the variable is assigned a value that makes the literal false
      */
     boolean isFalse() {
-        return variable.isSet() && sign != variable.val();
+        return assignment.values[var] == -value;
     }
 
     /**
@@ -203,19 +374,140 @@ class Literal {
     }
 
     /**
-     * References to clauses where this literal is being watched.
+     * References to clauses where this literal is being watched
+     * (a read-only view of watches()).
      *
-     * When the watched literals in a clase change, this needs to be
-     * updated / kept in sync!
+     * It changes only through Clause.setWatch and Theory.setLiteral;
+     * modifying the view throws UnsupportedOperationException.
+     */
+    Set<Clause> watchedIn() { return watches.view(); }
+
+    /**
+     * The clauses where this literal is being watched.
+     */
+    WatchList watches() { return watches; }
+}
+
+/**
+ * The clauses watching a literal, in parallel arrays.
+ *
+ * Each clause comes with a blocker: another literal of the clause
+ * (usually its other watched literal). If the blocker is true, the
+ * clause is satisfied and propagation skips it without looking at
+ * the clause itself. Theory.setLiteral walks the arrays directly and
+ * removes the clauses that move their watch by compacting them in place.
+ */
+final class WatchList {
+    Clause[] clauses = new Clause[4];
+    Literal[] blockers = new Literal[4];
+    int size = 0;
+    private Set<Clause> view = null;
+
+    void add(Clause c, Literal blocker) {
+        if (size == clauses.length) {
+            clauses = Arrays.copyOf(clauses, 2 * size);
+            blockers = Arrays.copyOf(blockers, 2 * size);
+        }
+        clauses[size] = c;
+        blockers[size++] = blocker;
+    }
+
+    /**
+     * Remove `c` (keeping the order of the others).
+     */
+    void remove(Clause c) {
+        for (int i = 0; i < size; ++i) {
+            if (clauses[i] == c) {
+                System.arraycopy(clauses, i + 1, clauses, i, size - i - 1);
+                System.arraycopy(blockers, i + 1, blockers, i, size - i - 1);
+                clauses[--size] = null;
+                blockers[size] = null;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Drop the entries from `newSize` on (after compacting).
      */
-    Set<Clause> watchedIn() { return watchedIn; }
+    void truncate(int newSize) {
+        Arrays.fill(clauses, newSize, size, null);
+        Arrays.fill(blockers, newSize, size, null);
+        size = newSize;
+    }
+
+    Set<Clause> view() {
+        if (view == null) {
+            view = new AbstractSet<Clause>() {
+                @Override
+                public Iterator<Clause> iterator() {
+                    return Arrays.asList(clauses).subList(0, size).iterator();
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+
+                @Override
+                public boolean contains(Object o) {
+                    for (int i = 0; i < size; ++i)
+                        if (clauses[i] == o)
+                            return true;
+                    return false;
+                }
+            };
+        }
+        return view;
+    }
 }
 
+/**
+ * A clause is immutable once it is constructed: `literals` duplicates
+ * its elements, so add, remove, clear and removal through an iterator
+ * throw UnsupportedOperationException.
+ */
 class Clause extends HashSet<Literal> {
     Literal[] watched = {null, null};
+    // the literals again, for scanning without an iterator
+    final Literal[] literals;
 
     private Clause(Collection<? extends Literal> lits) {
-        super(lits);
+        super(lits); // literals is still null, so add works here
+        literals = toArray(new Literal[0]);
+    }
+
+    @Override
+    public boolean add(Literal l) {
+        if (literals != null)
+            throw new UnsupportedOperationException("clauses are immutable");
+        return super.add(l);
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        throw new UnsupportedOperationException("clauses are immutable");
+    }
+
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException("clauses are immutable");
+    }
+
+    @Override
+    public Iterator<Literal> iterator() {
+        Iterator<Literal> it = super.iterator();
+        return new Iterator<Literal>() {
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public Literal next() {
+                return it.next();
+            }
+        };
     }
 
     /**
@@ -232,13 +524,13 @@ class Clause extends HashSet<Literal> {
         ;
     }
 
-    public static Clause fromString(String s, Map<String, Variable> vars) {
+    public static Clause fromString(String s, Map<String, Variable> vars, Assignment assignment) {
         s = s.trim().replaceFirst("^\\(", "").replaceFirst("\\)$", "").trim();
         if (s.isEmpty())
             return new Clause(Collections.emptyList());
         return new Clause(
             Pattern.compile("[ ∨]+").splitAsStream(s)
-                .map(cs -> Literal.fromString(cs, vars))
+                .map(cs -> Literal.fromString(cs, vars, assignment))
                 .collect(Collectors.toList())
         );
     }
@@ -251,7 +543,16 @@ class Clause extends HashSet<Literal> {
      * @param lit the new literal to be watched
      */
     void setWatch(int index, Literal lit) {
-        throw new RuntimeException("Not implemented");
+        Literal old = watched[index];
+        if (old == lit)
+            return;
+        Literal other = watched[1 - index];
+        // a unit clause watches its literal twice, but it is listed once
+        if (old != null && old != other)
+            old.watches().remove(this);
+        watched[index] = lit;
+        if (lit != other)
+            lit.watches().add(this, other != null ? other : lit);
     }
 
     /**
@@ -263,7 +564,23 @@ class Clause extends HashSet<Literal> {
      *         false if no acceptable literal was found (old won't be changed)
      */
     public boolean findNewWatch(Literal old) {
-        throw new RuntimeException("Not implemented");
+        if (!old.isFalse())
+            return true;
+        Literal lit = replacement();
+        if (lit == null)
+            return false;
+        setWatch(watched[0] == old ? 0 : 1, lit);
+        return true;
+    }
+
+    /**
+     * @return a literal that is not watched and not false, or null
+     */
+    Literal replacement() {
+        for (Literal lit : literals)
+            if (lit != watched[0] && lit != watched[1] && !lit.isFalse())
+                return lit;
+        return null;
     }
 }
 
@@ -330,16 +647,18 @@ class Cnf extends HashSet<Clause> {
 
 class Theory {
     private final Cnf cnf = new Cnf();
+    // only for parsing, variables are numbered by the assignment
     private final Map<String,Variable> vars = new HashMap<String,Variable>();
-    private final Deque<Literal> assignedLits = new ArrayDeque<Literal>();
+    private final Assignment assignment = new Assignment();
     public Theory(String... cls) {
         for (String s : cls) {
-            cnf.add(Clause.fromString(s, vars));
+            cnf.add(Clause.fromString(s, vars, assignment));
         }
     }
 
     public Cnf cnf() { return cnf; }
     public Map<String, Variable> vars() { return vars; }
+    public Assignment assignment() { return assignment; }
 
     /**
      * Initialize the watched literals in each clause,
@@ -349,12 +668,26 @@ class Theory {
      * and the clause should be added to the list of unit clauses
      * `units`.
      *
-     * @param units a set where unit clauses should be added.
+     * @param units a collection where unit clauses should be added
+     *              (a set, or a queue the caller propagates them from).
      * @return false if an empty clause was encountered (i.e.
      *         the theory is already unsatisfiable), true otherwise.
      */
-    public boolean initWatched(Set<UnitClause> units) {
-        throw new RuntimeException("Not implemented");
+    public boolean initWatched(Collection<UnitClause> units) {
+        for (Clause c : cnf) {
+            Iterator<Literal> it = c.iterator();
+            if (!it.hasNext())
+                return false;
+            Literal first = it.next();
+            c.setWatch(0, first);
+            if (it.hasNext()) {
+                c.setWatch(1, it.next());
+            } else {
+                c.setWatch(1, first);
+                units.add(new UnitClause(c, first));
+            }
+        }
+        return true;
     }
 
     /**
@@ -363,22 +696,99 @@ class Theory {
      *
      * Also add any clauses that became "unit" clauses
      * (all literals are false except one that is unset)
-     * into the set referenced by units.
+     * into the collection referenced by units (a clause can be added
+     * more than once, e.g. to a queue, if it is found again).
      *
      * @param l the literal to become true
      * @return false if a clause becomes unsatisfied (all literals became/are false)
      *         or if an already set literal is requsted to be set the wrong way,
      *         true otherwise
      */
-    public boolean setLiteral(Literal l, Set<UnitClause> units) {
-        throw new RuntimeException("Not implemented");
+    public boolean setLiteral(Literal l, Collection<UnitClause> units) {
+        if (l.isTrue())
+            return true;
+        if (l.isFalse())
+            return false;
+        assignment.assign(l);
+
+        // the same as findNewWatch on each clause watching l.not(),
+        // but the clauses that move their watch are compacted out
+        // of the watch list in place
+        Literal notL = l.not();
+        WatchList ws = notL.watches();
+        Clause[] cs = ws.clauses;
+        Literal[] bs = ws.blockers;
+        int n = ws.size;
+        int kept = 0;
+        boolean ok = true;
+        int i = 0;
+        for (; i < n; ++i) {
+            Clause c = cs[i];
+            Literal blocker = bs[i];
+            if (blocker.isTrue()) {
+                cs[kept] = c;
+                bs[kept++] = blocker;
+                continue;
+            }
+            int index = c.watched[0] == notL ? 0 : 1;
+            Literal other = c.watched[1 - index];
+            if (other.isTrue()) {
+                cs[kept] = c;
+                bs[kept++] = other;
+                continue;
+            }
+            Literal lit = c.replacement();
+            if (lit != null) {
+                c.watched[index] = lit;
+                lit.watches().add(c, other);
+                continue;
+            }
+            cs[kept] = c;
+            bs[kept++] = other;
+            if (other.isFalse()) {
+                ok = false;
+                ++i;
+                break;
+            }
+            units.add(new UnitClause(c, other));
+        }
+        // keep the rest after a conflict
+        for (; i < n; ++i) {
+            cs[kept] = cs[i];
+            bs[kept++] = bs[i];
+        }
+        ws.truncate(kept);
+        return ok;
     }
 
     /**
      * Unset the last assigned literal/variable.
      */
     public void unsetLiteral() {
-        throw new RuntimeException("Not implemented");
+        assignment.unassignLast();
+    }
+
+    /**
+     * Start a new decision level: literals set from now on are
+     * unset by backtrack(level) with the current level.
+     */
+    public void newDecisionLevel() {
+        assignment.newLevel();
+    }
+
+    /**
+     * @return the current decision level (0 before the first decision)
+     */
+    public int decisionLevel() {
+        return assignment.level();
+    }
+
+    /**
+     * Unset all literals set after decision level `level` started
+     * (the level becomes the current one).
+     */
+    public void backtrack(int level) {
+        assignment.backtrack(level);
     }
 
 }
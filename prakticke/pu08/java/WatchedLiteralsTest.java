@@ -314,6 +314,94 @@ public class WatchedLiteralsTest {
 
         t.testSetLiteral(false, "", "empty clause", T(""));
 
+        try (Tester.Scope s = t.scope("decision levels")) {
+            t.startCase("decision levels");
+            Theory T = T("a b c", "-a d", "-b -c");
+            Set<UnitClause> units = new HashSet<UnitClause>();
+            T.initWatched(units);
+            Literal a = T.vars().get("a").lit(true);
+            Literal b = T.vars().get("b").lit(true);
+            Literal d = T.vars().get("d").lit(true);
+
+            T.newDecisionLevel();
+            T.setLiteral(a, units);
+            T.setLiteral(d, units);
+            T.newDecisionLevel();
+            T.setLiteral(b, units);
+            t.compare(T.decisionLevel(), 2, "decision level after two decisions");
+            t.compare(T.assignment().nAssigned(), 3, "assigned literals after two decisions");
+
+            T.backtrack(1);
+            t.compare(T.decisionLevel(), 1, "decision level after backtrack(1)");
+            t.compare(b.isSet(), false, "b is unset after backtrack(1)");
+            t.compare(a.isTrue() && d.isTrue(), true, "a and d are still true after backtrack(1)");
+
+            T.unsetLiteral();
+            T.unsetLiteral();
+            t.compare(T.decisionLevel(), 0, "decision level after unsetting the whole level");
+            t.compare(a.isSet() || d.isSet(), false, "a and d are unset");
+            t.checkWatches(T, "after backtracking");
+        }
+        catch (Throwable e) {
+            t.fail("Exception: " + e.toString());
+            e.printStackTrace();
+        }
+
+        try (Tester.Scope s = t.scope("watch lists")) {
+            t.startCase("watch lists");
+            // the clauses with three literals find a new watch when x is set,
+            // so they are compacted out of the list of -x; -x y stays in it
+            Theory T = T("-x a b", "-x y", "-x c d", "-x e f", "a y");
+            Set<UnitClause> units = new HashSet<UnitClause>();
+            T.initWatched(units);
+            Literal x = T.vars().get("x").lit(true);
+            Literal y = T.vars().get("y").lit(true);
+            Literal a = T.vars().get("a").lit(true);
+            Clause xy = null, ay = null, xab = null;
+            for (Clause c : T.cnf()) {
+                if (c.contains(x.not()) && c.size() == 2) xy = c;
+                if (c.contains(a) && c.size() == 2) ay = c;
+                if (c.contains(a) && c.size() == 3) xab = c;
+            }
+
+            T.setLiteral(x, units);
+            t.compare(x.not().watchedIn(), Collections.singleton(xy), "only -x y watches -x after x");
+            t.checkWatches(T, "after x");
+            T.unsetLiteral();
+            t.checkWatches(T, "after unsetting x");
+
+            // y is the blocker of a in a y: the clause is satisfied
+            // and stays in the list of a
+            T.setLiteral(y, units);
+            T.setLiteral(a.not(), units);
+            t.compare(a.watchedIn().contains(ay), true, "a y still watches a when y is true");
+            t.checkWatches(T, "after y -a");
+            T.setLiteral(x, units);
+            // -x a b is unit now, so it cannot move its watch from -x
+            t.compare(x.not().watchedIn(), new HashSet<Clause>(Arrays.asList(xy, xab)), "-x y and -x a b watch -x after y -a x");
+            t.checkWatches(T, "after y -a x");
+            T.unsetLiteral();
+            T.unsetLiteral();
+            T.unsetLiteral();
+            t.checkWatches(T, "after unsetting y -a x");
+
+            try {
+                xy.add(a);
+                t.fail("adding to a clause should throw");
+            } catch (UnsupportedOperationException e) {
+            }
+            try {
+                x.not().watchedIn().clear();
+                t.fail("clearing watchedIn should throw");
+            } catch (UnsupportedOperationException e) {
+            }
+            t.compare(xy.size(), 2, "the clause is unchanged");
+        }
+        catch (Throwable e) {
+            t.fail("Exception: " + e.toString());
+            e.printStackTrace();
+        }
+
         System.exit(t.status() ? 0 : 1);
     }
 }
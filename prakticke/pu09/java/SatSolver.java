@@ -1,3 +1,4 @@
+import java.util.ArrayDeque;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
@@ -17,9 +18,57 @@ public class SatSolver {
         public static Result unsat() { return new Result(false, Collections.emptyMap()); }
     }
 
+    // unit clauses waiting for propagation, in the order they were found;
+    // duplicates are not removed (that would mean hashing whole clauses),
+    // propagating a unit clause twice does nothing the second time
+    private final ArrayDeque<UnitClause> units = new ArrayDeque<UnitClause>();
+
     public Result solve(Theory t) {
-        // TODO implement me!
-        return Result.unsat();
+        units.clear();
+        if (!t.initWatched(units) || !propagate(t) || !dpll(t, 0))
+            return Result.unsat();
+        return Result.sat(t.vars());
+    }
+
+    /**
+     * Set the literals of all unit clauses (including new ones).
+     *
+     * @return false on a conflict
+     */
+    private boolean propagate(Theory t) {
+        UnitClause uc;
+        while ((uc = units.poll()) != null) {
+            if (!t.setLiteral(uc.unsetLiteral(), units)) {
+                units.clear();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Try both values of the first unset variable with id >= `next`
+     * (all variables before it are set), each on a new decision level.
+     *
+     * @return true if all variables are set without a conflict
+     */
+    private boolean dpll(Theory t, int next) {
+        Assignment a = t.assignment();
+        while (next < a.nVars() && a.variable(next).isSet())
+            ++next;
+        if (next == a.nVars())
+            return true;
+
+        Variable v = a.variable(next);
+        int level = t.decisionLevel();
+        for (boolean sign : new boolean[] { true, false }) {
+            t.newDecisionLevel();
+            if (t.setLiteral(v.lit(sign), units) && propagate(t) && dpll(t, next + 1))
+                return true;
+            units.clear();
+            t.backtrack(level);
+        }
+        return false;
     }
 
     public static void main(String[] args) {